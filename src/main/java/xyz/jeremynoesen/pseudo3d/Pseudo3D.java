@@ -4,14 +4,19 @@ import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.Pane;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Layer;
 import xyz.jeremynoesen.pseudo3d.input.Keyboard;
 import xyz.jeremynoesen.pseudo3d.input.Mouse;
 
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Starting point of all functions of Pseudo3D
  *
@@ -20,10 +25,20 @@ import xyz.jeremynoesen.pseudo3d.input.Mouse;
 public class Pseudo3D extends Application {
 
     /**
-     * Canvas for root Pane
+     * Canvas for root Pane, which is the top Canvas when rendering Layers separately
      */
     private static Canvas canvas;
 
+    /**
+     * Stacked Canvases for each render Layer, or null when rendering to a single Canvas
+     */
+    private static Canvas[] layers;
+
+    /**
+     * GraphicsContexts of the stacked Canvases for each render Layer
+     */
+    private static GraphicsContext[] layerContexts;
+
     /**
      * JavaFX Scene for the Stage
      */
@@ -32,7 +47,7 @@ public class Pseudo3D extends Application {
     /**
      * Active Pseudo3D Scene to render and tick
      */
-    private static xyz.jeremynoesen.pseudo3d.core.Scene activeScene;
+    private static volatile xyz.jeremynoesen.pseudo3d.core.Scene activeScene;
 
     /**
      * Whether the window can be resized or not
@@ -54,10 +69,25 @@ public class Pseudo3D extends Application {
      */
     private static final Timeline renderLoop = new Timeline();
 
+    /**
+     * Dedicated thread for ticking, or null when ticking on the JavaFX application thread
+     */
+    private static Thread tickThread;
+
+    /**
+     * Whether the game loops are paused
+     */
+    private static volatile boolean paused = true;
+
+    /**
+     * Whether the tick thread should keep running
+     */
+    private static volatile boolean running = false;
+
     /**
      * Delta time for the tick loop
      */
-    private static float tickDeltaTime = 0;
+    private static volatile float tickDeltaTime = 0;
 
     /**
      * Delta time for the render loop
@@ -65,7 +95,7 @@ public class Pseudo3D extends Application {
     private static float renderDeltaTime = 0;
 
     /**
-     * Previous time a tick finished in nanoseconds
+     * Previous time a tick finished in nanoseconds, only used by the thread ticking the active Scene
      */
     private static long lastTick = 0;
 
@@ -87,22 +117,67 @@ public class Pseudo3D extends Application {
      */
     public static void launch(int width, int height, float framerate, float tickSpeed,
                               boolean fixedDeltaTime, boolean resizable, String title) {
+        launch(width, height, framerate, tickSpeed, fixedDeltaTime, resizable, title, false);
+    }
+
+    /**
+     * Launch the instance of the Application, optionally rendering each Layer to its own stacked Canvas
+     *
+     * @param width          Width of window
+     * @param height         Height of window
+     * @param framerate      Framerate for rendering in frames per second
+     * @param tickSpeed      Tick speed for physics in hertz
+     * @param fixedDeltaTime Whether the delta time is a fixed value
+     * @param resizable      Resizable status
+     * @param title          Window title
+     * @param layered        True to render each Layer to its own stacked Canvas
+     */
+    public static void launch(int width, int height, float framerate, float tickSpeed,
+                              boolean fixedDeltaTime, boolean resizable, String title, boolean layered) {
+        launch(width, height, framerate, tickSpeed, fixedDeltaTime, resizable, title, layered, false);
+    }
+
+    /**
+     * Launch the instance of the Application, optionally rendering each Layer to its own stacked Canvas and ticking on
+     * a dedicated thread
+     * <br>
+     * With layered rendering, the background and static Layers are only redrawn when the Camera or their contents
+     * change, while the dynamic Layer is redrawn every frame
+     * <br>
+     * With threaded ticking, the active Scene is ticked on its own thread paced with System.nanoTime, so slow ticks and
+     * slow frames no longer delay each other. Active Scenes are set to publish Snapshots for rendering, and Keyboard
+     * and Mouse input is queued and polled at the start of every tick. Sprite animations also advance on the tick
+     * thread. Entities, Sprites, and input should then only be used from tick Runnables.
+     *
+     * @param width          Width of window
+     * @param height         Height of window
+     * @param framerate      Framerate for rendering in frames per second
+     * @param tickSpeed      Tick speed for physics in hertz
+     * @param fixedDeltaTime Whether the delta time is a fixed value
+     * @param resizable      Resizable status
+     * @param title          Window title
+     * @param layered        True to render each Layer to its own stacked Canvas
+     * @param threaded       True to tick on a dedicated thread instead of the JavaFX application thread
+     */
+    public static void launch(int width, int height, float framerate, float tickSpeed, boolean fixedDeltaTime,
+                              boolean resizable, String title, boolean layered, boolean threaded) {
         if (Float.compare(tickSpeed, 0) == 0 || Float.compare(framerate, 0) == 0)
             throw new IllegalArgumentException("Cannot set tickSpeed or framerate to 0");
 
         Pseudo3D.resizable = resizable;
         Pseudo3D.title = title;
 
-        tickLoop.setCycleCount(Animation.INDEFINITE);
-        tickLoop.getKeyFrames().add(new KeyFrame(Duration.millis(1000f / tickSpeed), ae -> {
-            if (!fixedDeltaTime && lastTick > 0) tickDeltaTime = (System.nanoTime() - lastTick) / 1000000000.0f;
-            else if (fixedDeltaTime) tickDeltaTime = 1f / tickSpeed;
-            else tickDeltaTime = 0;
-
-            activeScene.tick(tickDeltaTime);
-
-            lastTick = System.nanoTime();
-        }));
+        if (threaded) {
+            running = true;
+            tickThread = new Thread(() -> tickLoop(tickSpeed, fixedDeltaTime), "Pseudo3D Tick Loop");
+            tickThread.setDaemon(true);
+            tickThread.start();
+        } else {
+            tickThread = null;
+            tickLoop.setCycleCount(Animation.INDEFINITE);
+            tickLoop.getKeyFrames().add(new KeyFrame(Duration.millis(1000f / tickSpeed),
+                    ae -> tick(tickSpeed, fixedDeltaTime)));
+        }
 
         renderLoop.setCycleCount(Animation.INDEFINITE);
         renderLoop.getKeyFrames().add(new KeyFrame(Duration.millis(1000f / framerate), ae -> {
@@ -110,19 +185,108 @@ public class Pseudo3D extends Application {
             else if (fixedDeltaTime) renderDeltaTime = 1f / framerate;
             else renderDeltaTime = 0;
 
-            activeScene.render(canvas.getGraphicsContext2D(), renderDeltaTime);
+            if (layers != null) activeScene.render(layerContexts, renderDeltaTime);
+            else activeScene.render(canvas.getGraphicsContext2D(), renderDeltaTime);
 
             lastRender = System.nanoTime();
         }));
 
-        canvas = new Canvas(width, height);
+        if (layered) {
+            layers = new Canvas[Layer.values().length];
+            layerContexts = new GraphicsContext[layers.length];
+            for (int i = 0; i < layers.length; i++) {
+                layers[i] = new Canvas(width, height);
+                layerContexts[i] = layers[i].getGraphicsContext2D();
+            }
+            canvas = layers[layers.length - 1];
+        } else {
+            layers = null;
+            layerContexts = null;
+            canvas = new Canvas(width, height);
+        }
 
         Mouse.init(canvas);
         Keyboard.init(canvas);
+        Mouse.setQueued(threaded);
+        Keyboard.setQueued(threaded);
+        if (threaded && activeScene != null) activeScene.setBuffered(true);
 
         new Thread(Application::launch).start();
     }
 
+    /**
+     * Tick the active Scene once, calculating the delta time since the previous tick
+     *
+     * @param tickSpeed      Tick speed for physics in hertz
+     * @param fixedDeltaTime Whether the delta time is a fixed value
+     */
+    private static void tick(float tickSpeed, boolean fixedDeltaTime) {
+        if (!fixedDeltaTime && lastTick > 0) tickDeltaTime = (System.nanoTime() - lastTick) / 1000000000.0f;
+        else if (fixedDeltaTime) tickDeltaTime = 1f / tickSpeed;
+        else tickDeltaTime = 0;
+
+        activeScene.tick(tickDeltaTime);
+
+        lastTick = System.nanoTime();
+    }
+
+    /**
+     * Run the tick loop on the dedicated tick thread, polling input before every tick
+     * <br>
+     * Ticks are scheduled on a fixed period measured with System.nanoTime, and the thread parks until the next tick is
+     * due. If ticks fall far behind, the schedule is reset instead of running many ticks at once to catch up. The
+     * previous tick time is reset here after pausing, so the time spent paused is not passed to the first tick.
+     * <br>
+     * Exceptions thrown while ticking are reported to the uncaught exception handler of the thread and ticking goes
+     * on, as it does on the JavaFX application thread. Errors are reported and then stop the Application.
+     *
+     * @param tickSpeed      Tick speed for physics in hertz
+     * @param fixedDeltaTime Whether the delta time is a fixed value
+     */
+    private static void tickLoop(float tickSpeed, boolean fixedDeltaTime) {
+        long period = (long) (1000000000.0 / tickSpeed);
+        long next = System.nanoTime();
+        while (running) {
+            if (paused) {
+                LockSupport.park();
+                lastTick = 0;
+                next = System.nanoTime();
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+
+            try {
+                Keyboard.poll();
+                Mouse.poll();
+                if (activeScene != null) tick(tickSpeed, fixedDeltaTime);
+            } catch (RuntimeException e) {
+                report(e);
+            } catch (Error e) {
+                report(e);
+                running = false;
+                Platform.exit();
+            }
+
+            next += period;
+            if (now - next > period * 4) next = now + period;
+        }
+    }
+
+    /**
+     * Report an exception thrown on the tick thread to its uncaught exception handler
+     *
+     * @param e Exception thrown while ticking
+     */
+    private static void report(Throwable e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
     /**
      * Start the application
      *
@@ -131,7 +295,15 @@ public class Pseudo3D extends Application {
     @Override
     public void start(Stage primaryStage) {
         Pane root = new Pane();
-        root.getChildren().add(canvas);
+        if (layers != null) {
+            for (Canvas layer : layers) {
+                root.getChildren().add(layer);
+                layer.widthProperty().bind(root.widthProperty());
+                layer.heightProperty().bind(root.heightProperty());
+            }
+        } else {
+            root.getChildren().add(canvas);
+        }
         scene = new Scene(root);
         primaryStage.setTitle(title);
         primaryStage.setResizable(resizable);
@@ -153,7 +325,9 @@ public class Pseudo3D extends Application {
     public void stop() throws Exception {
         tickLoop.stop();
         renderLoop.stop();
-        lastTick = 0;
+        running = false;
+        if (tickThread != null) LockSupport.unpark(tickThread);
+        else lastTick = 0;
         lastRender = 0;
         super.stop();
     }
@@ -164,13 +338,15 @@ public class Pseudo3D extends Application {
      * @param paused True to pause
      */
     public static void setPaused(boolean paused) {
+        Pseudo3D.paused = paused;
         if (paused) {
             tickLoop.pause();
             renderLoop.pause();
-            lastTick = 0;
+            if (tickThread == null) lastTick = 0;
             lastRender = 0;
         } else {
-            tickLoop.play();
+            if (tickThread != null) LockSupport.unpark(tickThread);
+            else tickLoop.play();
             renderLoop.play();
         }
     }
@@ -184,6 +360,27 @@ public class Pseudo3D extends Application {
         return canvas;
     }
 
+    /**
+     * Get the stacked Canvas a render Layer is drawn to
+     * <br>
+     * When not rendering Layers separately, this is always the main Canvas
+     *
+     * @param layer Render Layer
+     * @return Canvas of the Layer
+     */
+    public static Canvas getCanvas(Layer layer) {
+        return layers != null ? layers[layer.ordinal()] : canvas;
+    }
+
+    /**
+     * Check if each render Layer is drawn to its own stacked Canvas
+     *
+     * @return True if rendering Layers separately
+     */
+    public static boolean isLayered() {
+        return layers != null;
+    }
+
     /**
      * Get the JavaFX Scene the main Canvas is placed on
      *
@@ -213,13 +410,25 @@ public class Pseudo3D extends Application {
 
     /**
      * Set a new Pseudo3D Scene to be active
+     * <br>
+     * When ticking on a dedicated thread, the Scene is set to publish Snapshots for rendering
      *
      * @param activeScene Pseudo3D Scene
      */
     public static void setActiveScene(xyz.jeremynoesen.pseudo3d.core.Scene activeScene) {
+        if (tickThread != null) activeScene.setBuffered(true);
         Pseudo3D.activeScene = activeScene;
     }
 
+    /**
+     * Check if the active Scene is ticked on a dedicated thread instead of the JavaFX application thread
+     *
+     * @return True if ticking on a dedicated thread
+     */
+    public static boolean isThreaded() {
+        return tickThread != null;
+    }
+
     /**
      * Get the delta time for the previous iteration of the tick loop
      *
@@ -2,11 +2,16 @@ package xyz.jeremynoesen.pseudo3d.core;
 
 import javafx.scene.canvas.GraphicsContext;
 import xyz.jeremynoesen.pseudo3d.core.object.Entity;
+import xyz.jeremynoesen.pseudo3d.core.object.ParticleSystem;
 import xyz.jeremynoesen.pseudo3d.core.graphics.Sprite;
 import xyz.jeremynoesen.pseudo3d.core.graphics.Camera;
+import xyz.jeremynoesen.pseudo3d.core.graphics.RenderTarget;
+import xyz.jeremynoesen.pseudo3d.core.graphics.SnapshotBuffer;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Viewport;
 import xyz.jeremynoesen.pseudo3d.core.graphics.Renderer;
 import xyz.jeremynoesen.pseudo3d.core.util.Vector;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -29,6 +34,16 @@ public class Scene {
      */
     private Camera camera;
 
+    /**
+     * Viewports showing the Scene through their own Cameras, or empty to show the Scene Camera on the whole render
+     */
+    private final ArrayList<Viewport> viewports;
+
+    /**
+     * ParticleSystems in the Scene
+     */
+    private final ArrayList<ParticleSystem> particleSystems;
+
     /**
      * Background Sprite of the Scene;
      */
@@ -61,12 +76,19 @@ public class Scene {
      */
     private float speed;
 
+    /**
+     * Buffer of Snapshots published after every tick for rendering, or null to render the Scene directly
+     */
+    private SnapshotBuffer snapshotBuffer;
+
     /**
      * Create a new default Scene
      */
     public Scene() {
         entities = new LinkedList<>();
         camera = new Camera();
+        viewports = new ArrayList<>();
+        particleSystems = new ArrayList<>();
         background = null;
         tickRunnables = new HashSet<>();
         renderRunnables = new HashSet<>();
@@ -86,6 +108,8 @@ public class Scene {
     public Scene(LinkedList<Entity> entities, Camera camera, Sprite background, Vector gridScale) {
         this.entities = entities;
         this.camera = camera;
+        viewports = new ArrayList<>();
+        particleSystems = new ArrayList<>();
         this.background = background;
         tickRunnables = new HashSet<>();
         renderRunnables = new HashSet<>();
@@ -105,19 +129,26 @@ public class Scene {
             entities.add(new Entity(entity));
         }
         camera = new Camera(scene.camera);
+        viewports = new ArrayList<>(scene.viewports);
+        particleSystems = new ArrayList<>();
+        for (ParticleSystem particleSystem : scene.particleSystems) {
+            particleSystems.add(new ParticleSystem(particleSystem));
+        }
         background = scene.background;
         tickRunnables = scene.tickRunnables;
         renderRunnables = scene.renderRunnables;
         gridScale = scene.gridScale;
         renderer = new Renderer(this);
         speed = scene.speed;
+        if (scene.snapshotBuffer != null) setBuffered(true);
     }
 
     /**
      * Tick all entities in the Scene
      * <br>
-     * Ticking will do the following in order: run any Runnables, update motion for all Entities, then update collisions
-     * for all Entities
+     * Ticking will do the following in order: run any Runnables, update motion for all Entities, update collisions
+     * for all Entities, update Animators of all Entities, update all ParticleSystems, then publish a Snapshot for
+     * rendering if buffered
      *
      * @param deltaTime How long the previous tick took in seconds
      */
@@ -125,6 +156,9 @@ public class Scene {
         tickRunnables.forEach(Runnable::run);
         for (Entity entity : entities) entity.tickMotion(deltaTime * speed);
         for (Entity entity : entities) entity.tickCollisions();
+        for (Entity entity : entities) entity.tickAnimation(deltaTime * speed);
+        for (ParticleSystem particleSystem : particleSystems) particleSystem.tick(deltaTime * speed);
+        if (snapshotBuffer != null) snapshotBuffer.publish(this, deltaTime);
     }
 
     /**
@@ -138,6 +172,39 @@ public class Scene {
         renderer.render(graphicsContext, deltaTime * speed);
     }
 
+    /**
+     * Render this Scene with each render Layer on its own stacked Canvas, as well as run any Runnables
+     *
+     * @param layers    GraphicsContexts to render each Layer to, in Layer order
+     * @param deltaTime How long the previous render took in seconds
+     */
+    public void render(GraphicsContext[] layers, float deltaTime) {
+        renderRunnables.forEach(Runnable::run);
+        renderer.render(layers, deltaTime * speed);
+    }
+
+    /**
+     * Render this Scene to a RenderTarget, as well as run any Runnables
+     *
+     * @param target    RenderTarget to render to
+     * @param deltaTime How long the previous render took in seconds
+     */
+    public void render(RenderTarget target, float deltaTime) {
+        renderRunnables.forEach(Runnable::run);
+        renderer.render(target, deltaTime * speed);
+    }
+
+    /**
+     * Render this Scene with each render Layer on its own RenderTarget, as well as run any Runnables
+     *
+     * @param layers    RenderTargets to render each Layer to, in Layer order
+     * @param deltaTime How long the previous render took in seconds
+     */
+    public void render(RenderTarget[] layers, float deltaTime) {
+        renderRunnables.forEach(Runnable::run);
+        renderer.render(layers, deltaTime * speed);
+    }
+
     /**
      * Get all the Entities in this Scene
      * <br>
@@ -179,6 +246,15 @@ public class Scene {
         return this;
     }
 
+    /**
+     * Get the Renderer for this Scene
+     *
+     * @return Scene's Renderer
+     */
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
     /**
      * Get the Camera for this Scene
      *
@@ -199,6 +275,71 @@ public class Scene {
         return this;
     }
 
+    /**
+     * Get the Viewports showing the Scene through their own Cameras
+     *
+     * @return List of Viewports, in draw order
+     */
+    public ArrayList<Viewport> getViewports() {
+        return viewports;
+    }
+
+    /**
+     * Add Viewports showing the Scene through their own Cameras, drawn in the order added
+     * <br>
+     * While the Scene has Viewports, they are drawn instead of the Scene Camera. Entities are sorted and captured once
+     * per frame for all Viewports.
+     *
+     * @param viewport Viewports to add
+     * @return This Scene
+     */
+    public Scene addViewport(Viewport... viewport) {
+        viewports.addAll(Arrays.asList(viewport));
+        return this;
+    }
+
+    /**
+     * Remove Viewports from the Scene
+     *
+     * @param viewport Viewports to remove
+     * @return This Scene
+     */
+    public Scene removeViewport(Viewport... viewport) {
+        Arrays.asList(viewport).forEach(viewports::remove);
+        return this;
+    }
+
+    /**
+     * Get the ParticleSystems in the Scene
+     *
+     * @return List of ParticleSystems
+     */
+    public ArrayList<ParticleSystem> getParticleSystems() {
+        return particleSystems;
+    }
+
+    /**
+     * Add ParticleSystems to the Scene
+     *
+     * @param particleSystem ParticleSystems to add
+     * @return This Scene
+     */
+    public Scene addParticleSystem(ParticleSystem... particleSystem) {
+        particleSystems.addAll(Arrays.asList(particleSystem));
+        return this;
+    }
+
+    /**
+     * Remove ParticleSystems from the Scene
+     *
+     * @param particleSystem ParticleSystems to remove
+     * @return This Scene
+     */
+    public Scene removeParticleSystem(ParticleSystem... particleSystem) {
+        Arrays.asList(particleSystem).forEach(particleSystems::remove);
+        return this;
+    }
+
     /**
      * Get the background Sprite of the Scene
      *
@@ -321,6 +462,46 @@ public class Scene {
         return this;
     }
 
+    /**
+     * Check if the Scene publishes a Snapshot after every tick for rendering
+     *
+     * @return True if buffered
+     */
+    public boolean isBuffered() {
+        return snapshotBuffer != null;
+    }
+
+    /**
+     * Set whether the Scene publishes a Snapshot after every tick for rendering
+     * <br>
+     * When buffered, the Renderer draws the latest complete Snapshot instead of reading Entities directly, so the
+     * Scene can be ticked on a different thread than it is rendered on without data races or torn frames. Sprite
+     * animations are then advanced on the ticking thread, and the Renderer passes which Entities are on-screen back
+     * through the Snapshots instead of setting them. Entities and Sprites should then only be modified on the ticking
+     * thread.
+     *
+     * @param buffered True to publish Snapshots
+     * @return This Scene
+     */
+    public Scene setBuffered(boolean buffered) {
+        if (buffered && snapshotBuffer == null) {
+            snapshotBuffer = new SnapshotBuffer();
+            snapshotBuffer.publish(this, 0);
+        } else if (!buffered) {
+            snapshotBuffer = null;
+        }
+        return this;
+    }
+
+    /**
+     * Get the buffer of Snapshots published after every tick
+     *
+     * @return SnapshotBuffer, or null if not buffered
+     */
+    public SnapshotBuffer getSnapshotBuffer() {
+        return snapshotBuffer;
+    }
+
     /**
      * Check if a Scene is identical to this Scene
      *
@@ -334,6 +515,8 @@ public class Scene {
         Scene scene = (Scene) o;
         return Objects.equals(entities, scene.entities) &&
                 Objects.equals(camera, scene.camera) &&
+                Objects.equals(viewports, scene.viewports) &&
+                Objects.equals(particleSystems, scene.particleSystems) &&
                 Objects.equals(background, scene.background) &&
                 Objects.equals(gridScale, scene.gridScale) &&
                 Objects.equals(tickRunnables, scene.tickRunnables) &&
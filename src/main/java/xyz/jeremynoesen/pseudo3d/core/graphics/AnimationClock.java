@@ -0,0 +1,116 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock which advances the animation of every Sprite queued during a frame exactly once
+ * <br>
+ * A Sprite shared by many Entities is queued once per Entity, but only updated once when the clock advances. Entities
+ * apply their own animation speed and phase on top of the shared Sprite animation.
+ *
+ * @author Jeremy Noesen
+ */
+public class AnimationClock {
+
+    /**
+     * Source of stamps unique to each frame of every AnimationClock
+     */
+    private static final AtomicLong STAMPS = new AtomicLong();
+
+    /**
+     * Sprites queued to update in the current frame
+     */
+    private final ArrayList<Sprite> queued;
+
+    /**
+     * Stamp of the current frame
+     */
+    private long stamp;
+
+    /**
+     * Time elapsed in total in seconds
+     */
+    private double time;
+
+    /**
+     * Create a new AnimationClock
+     */
+    public AnimationClock() {
+        queued = new ArrayList<>();
+        stamp = STAMPS.incrementAndGet();
+        time = 0;
+    }
+
+    /**
+     * Queue a Sprite to update when the clock next advances, if it is not already queued
+     *
+     * @param sprite Sprite to queue
+     * @return This AnimationClock
+     */
+    public AnimationClock queue(Sprite sprite) {
+        return queue(sprite, 0);
+    }
+
+    /**
+     * Queue a Sprite to update when the clock next advances, but at most once per interval
+     * <br>
+     * Until the interval has passed, the time the Sprite would have advanced by is kept and added to its next update,
+     * so throttled Sprites update less often without slowing down. If any queue of the Sprite in a frame is due, it
+     * will update in that frame.
+     *
+     * @param sprite   Sprite to queue
+     * @param interval Minimum time between updates in seconds, or 0 to update every frame
+     * @return This AnimationClock
+     */
+    public AnimationClock queue(Sprite sprite, float interval) {
+        boolean due = Float.compare(sprite.pending, interval) >= 0;
+        if (sprite.stamp != stamp) {
+            sprite.stamp = stamp;
+            sprite.due = due;
+            queued.add(sprite);
+        } else if (due) {
+            sprite.due = true;
+        }
+        return this;
+    }
+
+    /**
+     * Update every queued Sprite that is due once, keep the elapsed time for the others, and start the next frame
+     *
+     * @param deltaTime Time elapsed in the frame in seconds
+     * @return This AnimationClock
+     */
+    public AnimationClock advance(float deltaTime) {
+        for (Sprite sprite : queued) {
+            if (sprite.due) {
+                sprite.update(sprite.pending + deltaTime);
+                sprite.pending = 0;
+            } else {
+                sprite.pending += deltaTime;
+            }
+        }
+        queued.clear();
+        stamp = STAMPS.incrementAndGet();
+        time += deltaTime;
+        return this;
+    }
+
+    /**
+     * Get the number of Sprites queued to update in the current frame
+     *
+     * @return Number of queued Sprites
+     */
+    public int getQueued() {
+        return queued.size();
+    }
+
+    /**
+     * Get the total time the clock has advanced
+     *
+     * @return Time in seconds
+     */
+    public double getTime() {
+        return time;
+    }
+}
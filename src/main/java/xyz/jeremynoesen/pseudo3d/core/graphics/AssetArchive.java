@@ -0,0 +1,317 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Single packed file of many images, read through a memory-mapped FileChannel
+ * <br>
+ * An archive starts with an index of every image by name, followed by the image blobs. A blob holds either the
+ * original encoded file, or pixels pre-decoded to premultiplied ARGB that are copied straight from the mapped file into
+ * an Image without decoding. Archives mounted in Assets are searched before the file system.
+ *
+ * @author Jeremy Noesen
+ */
+public class AssetArchive {
+
+    /**
+     * Bytes every archive starts with
+     */
+    private static final int MAGIC = 0x50334441;
+
+    /**
+     * Version of the archive format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Blob type holding an encoded image file
+     */
+    private static final byte ENCODED = 0;
+
+    /**
+     * Blob type holding premultiplied ARGB pixels
+     */
+    private static final byte PIXELS = 1;
+
+    /**
+     * Mapped contents of the archive
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Index entries by normalized name
+     */
+    private final HashMap<String, Entry> entries;
+
+    /**
+     * Path of the archive file
+     */
+    private final String path;
+
+    /**
+     * Open an archive, mapping it into memory and reading its index
+     *
+     * @param path Path to the archive
+     * @throws IOException If the archive cannot be read or is not an archive
+     */
+    public AssetArchive(String path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC)
+            throw new IOException("Not an asset archive: " + path);
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported asset archive version " + version + ": " + path);
+
+        int count = buffer.getInt();
+        entries = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            Entry entry = new Entry(buffer.get(), buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getInt());
+            if (entry.offset + entry.length > buffer.capacity())
+                throw new IOException("Asset archive is truncated: " + path);
+            entries.put(normalize(new String(name, StandardCharsets.UTF_8)), entry);
+        }
+    }
+
+    /**
+     * Pack image files into an archive, named by the paths given
+     *
+     * @param path   Path to write the archive to
+     * @param decode True to store pre-decoded pixels, which load faster but take more space than the encoded files
+     * @param src    Paths to the images
+     * @throws IOException If an image or the archive cannot be read or written
+     */
+    public static void pack(String path, boolean decode, String... src) throws IOException {
+        byte[][] names = new byte[src.length][];
+        byte[][] blobs = new byte[src.length][];
+        int[] sizes = new int[src.length * 2];
+        long offset = 12;
+        for (int i = 0; i < src.length; i++) {
+            names[i] = normalize(src[i]).getBytes(StandardCharsets.UTF_8);
+            if (!decode) {
+                blobs[i] = Files.readAllBytes(Paths.get(src[i]));
+            } else {
+                Image image;
+                try (InputStream in = new FileInputStream(src[i])) {
+                    image = new Image(in);
+                }
+                if (image.isError()) throw new IOException("Could not decode " + src[i], image.getException());
+                int width = (int) image.getWidth();
+                int height = (int) image.getHeight();
+                int[] pixels = new int[width * height];
+                image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(),
+                        pixels, 0, width);
+                ByteBuffer bytes = ByteBuffer.allocate(pixels.length * 4);
+                bytes.asIntBuffer().put(pixels);
+                blobs[i] = bytes.array();
+                sizes[i * 2] = width;
+                sizes[i * 2 + 1] = height;
+            }
+            offset += 2 + names[i].length + 1 + 4 + 4 + 8 + 4;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(src.length);
+            for (int i = 0; i < src.length; i++) {
+                out.writeShort(names[i].length);
+                out.write(names[i]);
+                out.writeByte(decode ? PIXELS : ENCODED);
+                out.writeInt(sizes[i * 2]);
+                out.writeInt(sizes[i * 2 + 1]);
+                out.writeLong(offset);
+                out.writeInt(blobs[i].length);
+                offset += blobs[i].length;
+            }
+            for (byte[] blob : blobs) out.write(blob);
+        }
+    }
+
+    /**
+     * Normalize a name so different spellings of the same relative path match
+     *
+     * @param name Name or path of an image
+     * @return Normalized name
+     */
+    private static String normalize(String name) {
+        return Paths.get(name).normalize().toString();
+    }
+
+    /**
+     * Check if the archive holds an image
+     *
+     * @param name Name of the image, which is the path it was packed from
+     * @return True if the image is in the archive
+     */
+    public boolean contains(String name) {
+        return entries.containsKey(normalize(name));
+    }
+
+    /**
+     * Create an Image from the archive, copying pre-decoded pixels straight from the mapped file or decoding the
+     * encoded file from it
+     *
+     * @param name Name of the image, which is the path it was packed from
+     * @return New Image, or null if the archive does not hold the image
+     */
+    public Image get(String name) {
+        Entry entry = entries.get(normalize(name));
+        if (entry == null) return null;
+        ByteBuffer blob = buffer.duplicate();
+        blob.position((int) entry.offset);
+        blob.limit((int) entry.offset + entry.length);
+        blob = blob.slice();
+
+        if (entry.type == PIXELS) {
+            WritableImage image = new WritableImage(entry.width, entry.height);
+            image.getPixelWriter().setPixels(0, 0, entry.width, entry.height, PixelFormat.getIntArgbPreInstance(),
+                    blob.asIntBuffer(), entry.width);
+            return image;
+        }
+        return new Image(new BufferInputStream(blob));
+    }
+
+    /**
+     * Get the names of every image in the archive
+     *
+     * @return Normalized image names
+     */
+    public Set<String> getNames() {
+        return entries.keySet();
+    }
+
+    /**
+     * Get the path of the archive file
+     *
+     * @return Archive path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Index entry of an image blob
+     */
+    private static class Entry {
+
+        /**
+         * Type of the blob
+         */
+        private final byte type;
+
+        /**
+         * Width of pre-decoded pixels, or 0 if encoded
+         */
+        private final int width;
+
+        /**
+         * Height of pre-decoded pixels, or 0 if encoded
+         */
+        private final int height;
+
+        /**
+         * Position of the blob in the archive
+         */
+        private final long offset;
+
+        /**
+         * Length of the blob in bytes
+         */
+        private final int length;
+
+        /**
+         * Create a new Entry
+         *
+         * @param type   Type of the blob
+         * @param width  Width of pre-decoded pixels, or 0 if encoded
+         * @param height Height of pre-decoded pixels, or 0 if encoded
+         * @param offset Position of the blob in the archive
+         * @param length Length of the blob in bytes
+         */
+        private Entry(byte type, int width, int height, long offset, int length) {
+            this.type = type;
+            this.width = width;
+            this.height = height;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * InputStream reading an encoded image blob straight from the mapped file
+     */
+    private static class BufferInputStream extends InputStream {
+
+        /**
+         * Blob being read
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Create a new BufferInputStream
+         *
+         * @param buffer Blob to read
+         */
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Read one byte
+         *
+         * @return Byte read, or -1 at the end of the blob
+         */
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        /**
+         * Read bytes into an array
+         *
+         * @param bytes  Array to read into
+         * @param offset Position in the array to start at
+         * @param length Maximum number of bytes to read
+         * @return Number of bytes read, or -1 at the end of the blob
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        /**
+         * Get the number of bytes left in the blob
+         *
+         * @return Bytes left
+         */
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
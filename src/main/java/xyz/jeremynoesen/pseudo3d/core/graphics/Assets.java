@@ -0,0 +1,480 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared cache of decoded images keyed by path, so an image file used by many Sprites is only decoded once
+ * <br>
+ * Every acquire of a path must be matched by a release. Images no longer referenced stay cached until the total
+ * pixels of all cached images exceed the budget, then the least recently released ones are evicted first.
+ * <br>
+ * Images can also be loaded asynchronously on a small pool of background threads, with each file only decoded once
+ * even if it is requested again while loading. Mounted AssetArchives are searched for images before the file system,
+ * and a PixelCache can keep decoded pixels of image files between runs.
+ *
+ * @author Jeremy Noesen
+ */
+public class Assets {
+
+    /**
+     * Cached images by normalized path
+     */
+    private static final HashMap<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Cached images with no references, in order of least to most recently released
+     */
+    private static final LinkedHashMap<String, Entry> unused = new LinkedHashMap<>();
+
+    /**
+     * Images being decoded in the background by normalized path
+     */
+    private static final HashMap<String, CompletableFuture<Image>> loading = new HashMap<>();
+
+    /**
+     * Background threads decoding images, bounded to leave a core for ticking and rendering
+     */
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)), runnable -> {
+                Thread thread = new Thread(runnable, "Pseudo3D Loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Archives searched for images before the file system, in the order they were mounted
+     */
+    private static final CopyOnWriteArrayList<AssetArchive> archives = new CopyOnWriteArrayList<>();
+
+    /**
+     * On-disk cache of decoded pixels of image files, or null to always decode files
+     */
+    private static volatile PixelCache pixelCache = null;
+
+    /**
+     * Image shown by Sprites while their images load, or null to use a transparent pixel
+     */
+    private static Image placeholder = null;
+
+    /**
+     * Maximum total pixels of all cached images before unused ones are evicted
+     */
+    private static long budget = 16777216;
+
+    /**
+     * Total pixels of all cached images
+     */
+    private static long used = 0;
+
+    /**
+     * Get the shared decoded image of a file, decoding it if it is not cached, and add a reference to it
+     * <br>
+     * The image is decoded on the calling thread without holding the cache lock. If it is already being decoded by
+     * another thread or in the background, this waits for that decode instead of decoding it again.
+     *
+     * @param src Path to the image
+     * @return Shared Image
+     * @throws FileNotFoundException If the image does not exist
+     */
+    public static Image acquire(String src) throws FileNotFoundException {
+        String key = key(src);
+        CompletableFuture<Image> future;
+        boolean decoding = false;
+        synchronized (Assets.class) {
+            Entry entry = entries.get(key);
+            if (entry != null) return reference(key, entry.image);
+            future = loading.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+                decoding = true;
+            }
+        }
+        if (decoding) {
+            Image image = null;
+            Throwable error = null;
+            try {
+                image = decode(src);
+            } catch (Throwable e) {
+                error = e;
+            }
+            try {
+                future.complete(loaded(key, image, error));
+            } catch (CompletionException e) {
+                future.completeExceptionally(e.getCause());
+            }
+        }
+        try {
+            return reference(key, future.join());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FileNotFoundException) throw (FileNotFoundException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Get the shared decoded image of a file in the background, and add a reference to it once it is loaded
+     * <br>
+     * If the image is already cached, the returned future is already complete
+     *
+     * @param src Path to the image
+     * @return Future completed with the shared Image, or completed exceptionally if the image could not be loaded
+     */
+    public static CompletableFuture<Image> load(String src) {
+        String key = key(src);
+        CompletableFuture<Image> future;
+        synchronized (Assets.class) {
+            Entry entry = entries.get(key);
+            if (entry != null) return CompletableFuture.completedFuture(reference(key, entry.image));
+            future = loading.get(key);
+            if (future == null) {
+                future = decodeAsync(src).handle((image, e) -> loaded(key, image, e));
+                loading.put(key, future);
+            }
+        }
+        return future.thenApply(image -> reference(key, image));
+    }
+
+    /**
+     * Add a reference to a decoded image, caching it if it was evicted since it was decoded
+     *
+     * @param key   Normalized path of the image
+     * @param image Decoded Image
+     * @return Shared Image
+     */
+    private static synchronized Image reference(String key, Image image) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(image);
+            entries.put(key, entry);
+            used += entry.pixels;
+        } else if (entry.references == 0) {
+            unused.remove(key);
+        }
+        entry.references++;
+        return entry.image;
+    }
+
+    /**
+     * Decode an image in the background without caching it, such as for frames streamed by a Sprite
+     *
+     * @param src Path to the image
+     * @return Future completed with the decoded Image, or completed exceptionally if it could not be decoded
+     */
+    static CompletableFuture<Image> decodeAsync(String src) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return decode(src);
+            } catch (FileNotFoundException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Store an image decoded by acquire or in the background without references, so it is kept until every request
+     * adds its own
+     *
+     * @param key   Normalized path of the image
+     * @param image Decoded Image, or null if decoding failed
+     * @param error Error decoding the image, or null if it was decoded
+     * @return Decoded Image
+     */
+    private static synchronized Image loaded(String key, Image image, Throwable error) {
+        loading.remove(key);
+        if (error != null) throw error instanceof CompletionException ?
+                (CompletionException) error : new CompletionException(error);
+        if (!entries.containsKey(key)) {
+            Entry entry = new Entry(image);
+            entries.put(key, entry);
+            used += entry.pixels;
+        }
+        return entries.get(key).image;
+    }
+
+    /**
+     * Decode images in the background and keep them cached without references, so later loads do not decode them
+     * <br>
+     * Preloaded images can still be evicted if the cache goes over its budget before they are used
+     *
+     * @param src Paths to the images
+     * @return Future completed once every image is cached, or completed exceptionally if any could not be loaded
+     */
+    public static CompletableFuture<Void> preload(String... src) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[src.length];
+        for (int i = 0; i < src.length; i++) {
+            String path = src[i];
+            futures[i] = load(path).thenAccept(image -> release(path));
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Mount an archive, so images packed in it are read from it instead of their files
+     * <br>
+     * Images already cached are not reloaded
+     *
+     * @param archive Archive to mount
+     */
+    public static void mount(AssetArchive archive) {
+        archives.addIfAbsent(archive);
+    }
+
+    /**
+     * Unmount an archive, so its images are read from their files again once evicted
+     *
+     * @param archive Archive to unmount
+     */
+    public static void unmount(AssetArchive archive) {
+        archives.remove(archive);
+    }
+
+    /**
+     * Get the on-disk cache of decoded pixels of image files
+     *
+     * @return PixelCache, or null if disabled
+     */
+    public static PixelCache getPixelCache() {
+        return pixelCache;
+    }
+
+    /**
+     * Set the on-disk cache of decoded pixels of image files, so files decoded in earlier runs load by copying pixels
+     *
+     * @param pixelCache PixelCache, or null to always decode files
+     */
+    public static void setPixelCache(PixelCache pixelCache) {
+        Assets.pixelCache = pixelCache;
+    }
+
+    /**
+     * Get the image shown by Sprites while their images load
+     *
+     * @return Placeholder Image
+     */
+    public static synchronized Image getPlaceholder() {
+        if (placeholder == null) placeholder = new WritableImage(1, 1);
+        return placeholder;
+    }
+
+    /**
+     * Set the image shown by Sprites while their images load
+     *
+     * @param placeholder Placeholder Image, or null to use a transparent pixel
+     */
+    public static synchronized void setPlaceholder(Image placeholder) {
+        Assets.placeholder = placeholder;
+    }
+
+    /**
+     * Add a reference to the image of a file if it is already cached
+     *
+     * @param src Path to the image
+     * @return True if the image was cached and a reference was added
+     */
+    public static synchronized boolean retain(String src) {
+        String key = key(src);
+        Entry entry = entries.get(key);
+        if (entry == null) return false;
+        if (entry.references == 0) unused.remove(key);
+        entry.references++;
+        return true;
+    }
+
+    /**
+     * Remove a reference to the image of a file, letting it be evicted once nothing references it
+     *
+     * @param src Path to the image
+     */
+    public static synchronized void release(String src) {
+        String key = key(src);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.references == 0) return;
+        if (--entry.references == 0) {
+            unused.put(key, entry);
+            trim();
+        }
+    }
+
+    /**
+     * Evict unused images, least recently released first, until the cache fits its budget or none are left
+     */
+    private static void trim() {
+        Iterator<Map.Entry<String, Entry>> iterator = unused.entrySet().iterator();
+        while (used > budget && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            used -= eldest.getValue().pixels;
+            entries.remove(eldest.getKey());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Decode an image from the first mounted archive holding it, the PixelCache, or its file, closing the file once
+     * read and storing its pixels in the PixelCache
+     *
+     * @param src Path to the image
+     * @return Decoded Image
+     * @throws FileNotFoundException If the image does not exist
+     */
+    private static Image decode(String src) throws FileNotFoundException {
+        for (AssetArchive archive : archives) {
+            Image image = archive.get(src);
+            if (image != null) return image;
+        }
+        PixelCache cache = pixelCache;
+        if (cache != null) {
+            Image image = cache.load(src);
+            if (image != null) return image;
+        }
+
+        Image image;
+        FileInputStream in = new FileInputStream(src);
+        try {
+            image = new Image(in);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (cache != null) cache.store(src, image);
+        return image;
+    }
+
+    /**
+     * Normalize a path so different spellings of the same file share an image
+     *
+     * @param src Path to the image
+     * @return Absolute normalized path
+     */
+    private static String key(String src) {
+        return Paths.get(src).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Get the number of references to the image of a file
+     *
+     * @param src Path to the image
+     * @return Number of references, or 0 if it is not cached
+     */
+    public static synchronized int getReferences(String src) {
+        Entry entry = entries.get(key(src));
+        return entry != null ? entry.references : 0;
+    }
+
+    /**
+     * Check if the image of a file is cached
+     *
+     * @param src Path to the image
+     * @return True if cached
+     */
+    public static synchronized boolean isCached(String src) {
+        return entries.containsKey(key(src));
+    }
+
+    /**
+     * Check if the image of a file is being decoded in the background
+     *
+     * @param src Path to the image
+     * @return True if loading
+     */
+    public static synchronized boolean isLoading(String src) {
+        return loading.containsKey(key(src));
+    }
+
+    /**
+     * Evict every image with no references
+     */
+    public static synchronized void clear() {
+        for (String key : unused.keySet()) used -= entries.remove(key).pixels;
+        unused.clear();
+    }
+
+    /**
+     * Get the maximum total pixels of all cached images before unused ones are evicted
+     *
+     * @return Pixel budget
+     */
+    public static synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set the maximum total pixels of all cached images before unused ones are evicted, evicting images if needed
+     *
+     * @param budget Pixel budget
+     */
+    public static synchronized void setBudget(long budget) {
+        Assets.budget = budget;
+        trim();
+    }
+
+    /**
+     * Get the total pixels of all cached images
+     *
+     * @return Used pixels
+     */
+    public static synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * Get the number of cached images
+     *
+     * @return Number of cached images
+     */
+    public static synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Cached image and its references
+     */
+    private static class Entry {
+
+        /**
+         * Decoded image
+         */
+        private final Image image;
+
+        /**
+         * Number of pixels in the image
+         */
+        private final long pixels;
+
+        /**
+         * Number of references to the image
+         */
+        private int references;
+
+        /**
+         * Create a new Entry with no references
+         *
+         * @param image Decoded image
+         */
+        private Entry(Image image) {
+            this.image = image;
+            pixels = (long) image.getWidth() * (long) image.getHeight();
+            references = 0;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Texture atlas which packs many images into a few large page images
+ * <br>
+ * Sprites built from Regions of the same page can be drawn without switching textures
+ *
+ * @author Jeremy Noesen
+ */
+public class Atlas {
+
+    /**
+     * Width of each page in pixels
+     */
+    private final int pageWidth;
+
+    /**
+     * Height of each page in pixels
+     */
+    private final int pageHeight;
+
+    /**
+     * Empty pixels left between packed images to prevent sampling neighbors
+     */
+    private final int padding;
+
+    /**
+     * All pages of the Atlas
+     */
+    private final ArrayList<WritableImage> pages;
+
+    /**
+     * Page currently being packed into
+     */
+    private WritableImage page;
+
+    /**
+     * X position of the next image on the current shelf
+     */
+    private int shelfX;
+
+    /**
+     * Y position of the current shelf
+     */
+    private int shelfY;
+
+    /**
+     * Height of the tallest image on the current shelf
+     */
+    private int shelfHeight;
+
+    /**
+     * Create a new Atlas with 2048x2048 pixel pages
+     */
+    public Atlas() {
+        this(2048, 2048, 1);
+    }
+
+    /**
+     * Create a new Atlas with set page dimensions and padding
+     *
+     * @param pageWidth  Width of each page in pixels
+     * @param pageHeight Height of each page in pixels
+     * @param padding    Empty pixels between packed images
+     */
+    public Atlas(int pageWidth, int pageHeight, int padding) {
+        if (pageWidth <= 0 || pageHeight <= 0 || padding < 0)
+            throw new IllegalArgumentException("Invalid Atlas page dimensions or padding");
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.padding = padding;
+        pages = new ArrayList<>();
+    }
+
+    /**
+     * Load images from files and pack them into the Atlas
+     *
+     * @param src Paths to images
+     * @return Regions of the packed images, in the same order as the paths
+     * @throws FileNotFoundException If an image does not exist
+     */
+    public Region[] add(String... src) throws FileNotFoundException {
+        Image[] images = new Image[src.length];
+        try {
+            for (int i = 0; i < src.length; i++) images[i] = Assets.acquire(src[i]);
+            return add(images);
+        } finally {
+            for (int i = 0; i < src.length && images[i] != null; i++) Assets.release(src[i]);
+        }
+    }
+
+    /**
+     * Pack images into the Atlas
+     * <br>
+     * Images are placed tallest first to keep shelves tight
+     *
+     * @param image Images to pack
+     * @return Regions of the packed images, in the same order as the images
+     */
+    public Region[] add(Image... image) {
+        Integer[] order = new Integer[image.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> -image[i].getHeight()));
+
+        Region[] regions = new Region[image.length];
+        for (int i : order) regions[i] = pack(image[i]);
+        return regions;
+    }
+
+    /**
+     * Pack a single image into the next free space of the Atlas
+     *
+     * @param image Image to pack
+     * @return Region of the packed image
+     */
+    private Region pack(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+
+        if (width > pageWidth || height > pageHeight) {
+            WritableImage oversized = new WritableImage(width, height);
+            oversized.getPixelWriter().setPixels(0, 0, width, height, image.getPixelReader(), 0, 0);
+            pages.add(oversized);
+            return new Region(oversized, 0, 0, width, height);
+        }
+
+        if (page != null && shelfX + width > pageWidth) {
+            shelfY += shelfHeight + padding;
+            shelfX = 0;
+            shelfHeight = 0;
+        }
+
+        if (page == null || shelfY + height > pageHeight) {
+            page = new WritableImage(pageWidth, pageHeight);
+            pages.add(page);
+            shelfX = 0;
+            shelfY = 0;
+            shelfHeight = 0;
+        }
+
+        page.getPixelWriter().setPixels(shelfX, shelfY, width, height, image.getPixelReader(), 0, 0);
+        Region region = new Region(page, shelfX, shelfY, width, height);
+        shelfX += width + padding;
+        shelfHeight = Math.max(shelfHeight, height);
+        return region;
+    }
+
+    /**
+     * Get all pages of the Atlas
+     *
+     * @return List of page images
+     */
+    public List<WritableImage> getPages() {
+        return pages;
+    }
+
+    /**
+     * Get the width of each page
+     *
+     * @return Page width in pixels
+     */
+    public int getPageWidth() {
+        return pageWidth;
+    }
+
+    /**
+     * Get the height of each page
+     *
+     * @return Page height in pixels
+     */
+    public int getPageHeight() {
+        return pageHeight;
+    }
+}
@@ -100,6 +100,21 @@ public class Camera {
         rotation = camera.rotation;
     }
 
+    /**
+     * Copy the settings of another Camera into this Camera
+     *
+     * @param camera Camera to copy
+     */
+    void copy(Camera camera) {
+        position = camera.position;
+        fieldOfView = camera.fieldOfView;
+        sensorSize = camera.sensorSize;
+        viewDistance = camera.viewDistance;
+        zoom = camera.zoom;
+        offset = camera.offset;
+        rotation = camera.rotation;
+    }
+
     /**
      * Get the field of view in degrees
      *
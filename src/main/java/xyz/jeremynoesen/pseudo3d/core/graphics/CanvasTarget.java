@@ -0,0 +1,347 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
+
+/**
+ * RenderTarget drawing to a JavaFX Canvas through its GraphicsContext
+ *
+ * @author Jeremy Noesen
+ */
+public class CanvasTarget implements RenderTarget {
+
+    /**
+     * GraphicsContext of the Canvas to draw to
+     */
+    private final GraphicsContext graphicsContext;
+
+    /**
+     * Cache of pre-scaled Sprite images, or null to always scale while drawing
+     */
+    private ScaleCache scaleCache;
+
+    /**
+     * Counter-clock-wise rotation of the view in degrees
+     */
+    private float viewRotation;
+
+    /**
+     * X position of the point the view rotates around
+     */
+    private float pivotX;
+
+    /**
+     * Y position of the point the view rotates around
+     */
+    private float pivotY;
+
+    /**
+     * Transform of the GraphicsContext when the frame began, which draws are placed on top of
+     */
+    private final Affine base;
+
+    /**
+     * Transform applied to the GraphicsContext for the current rotation state, reused for every state change
+     */
+    private final Affine transform;
+
+    /**
+     * Whether the transform applied to the GraphicsContext matches the current view and draw rotation
+     */
+    private boolean applied;
+
+    /**
+     * Counter-clock-wise draw rotation in degrees the applied transform was built for
+     */
+    private float appliedRotation;
+
+    /**
+     * Cosine of the applied draw rotation
+     */
+    private float cos;
+
+    /**
+     * Sine of the applied draw rotation
+     */
+    private float sin;
+
+    /**
+     * Fill Color last set on the GraphicsContext, or null if unknown
+     */
+    private Color fill;
+
+    /**
+     * Create a new CanvasTarget without a ScaleCache
+     *
+     * @param graphicsContext GraphicsContext of the Canvas to draw to
+     */
+    public CanvasTarget(GraphicsContext graphicsContext) {
+        this(graphicsContext, null);
+    }
+
+    /**
+     * Create a new CanvasTarget using a ScaleCache for unrotated integer-sized draws
+     *
+     * @param graphicsContext GraphicsContext of the Canvas to draw to
+     * @param scaleCache      Cache of pre-scaled Sprite images, or null to always scale while drawing
+     */
+    public CanvasTarget(GraphicsContext graphicsContext, ScaleCache scaleCache) {
+        this.graphicsContext = graphicsContext;
+        this.scaleCache = scaleCache;
+        base = new Affine();
+        transform = new Affine();
+        applied = false;
+    }
+
+    /**
+     * Get the width of the Canvas
+     *
+     * @return Width in pixels
+     */
+    @Override
+    public float getWidth() {
+        return (float) graphicsContext.getCanvas().getWidth();
+    }
+
+    /**
+     * Get the height of the Canvas
+     *
+     * @return Height in pixels
+     */
+    @Override
+    public float getHeight() {
+        return (float) graphicsContext.getCanvas().getHeight();
+    }
+
+    /**
+     * Disable image smoothing and store the transform of the GraphicsContext for the new frame
+     */
+    @Override
+    public void begin() {
+        graphicsContext.setImageSmoothing(false);
+        graphicsContext.getTransform(base);
+        applied = false;
+        fill = null;
+    }
+
+    /**
+     * Clear the whole Canvas to transparent
+     */
+    @Override
+    public void clear() {
+        graphicsContext.clearRect(0, 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Save the GraphicsContext state, clip it to the rectangles, and clear them
+     *
+     * @param rects Rectangles stored as min x, min y, max x, and max y
+     * @param count Number of rectangles
+     */
+    @Override
+    public void clip(float[] rects, int count) {
+        reset();
+        graphicsContext.save();
+        graphicsContext.beginPath();
+        for (int i = 0; i < count * 4; i += 4) {
+            graphicsContext.rect(rects[i], rects[i + 1], rects[i + 2] - rects[i], rects[i + 3] - rects[i + 1]);
+        }
+        graphicsContext.clip();
+        for (int i = 0; i < count * 4; i += 4) {
+            graphicsContext.clearRect(rects[i], rects[i + 1], rects[i + 2] - rects[i], rects[i + 3] - rects[i + 1]);
+        }
+    }
+
+    /**
+     * Restore the GraphicsContext state saved by the previous clip
+     */
+    @Override
+    public void unclip() {
+        graphicsContext.restore();
+        applied = false;
+        fill = null;
+    }
+
+    /**
+     * Set the rotation of the view that following draws are placed in
+     *
+     * @param rotation Counter-clock-wise rotation of the view in degrees
+     * @param pivotX   X position of the point the view rotates around
+     * @param pivotY   Y position of the point the view rotates around
+     */
+    @Override
+    public void setView(float rotation, float pivotX, float pivotY) {
+        if (Float.compare(rotation, viewRotation) == 0 && Float.compare(pivotX, this.pivotX) == 0 &&
+                Float.compare(pivotY, this.pivotY) == 0) return;
+        applied = false;
+        this.viewRotation = rotation;
+        this.pivotX = pivotX;
+        this.pivotY = pivotY;
+    }
+
+    /**
+     * Draw a Region of an Image to the Canvas, using a pre-scaled image if available
+     * <br>
+     * Solid color Regions are filled as rectangles instead of scaling their single pixel
+     * <br>
+     * Rather than rotating around its own center, a rotated draw is placed in a view rotated by its rotation around
+     * the origin, so consecutive draws with the same rotation share one transform and only set it once. Rotated solid
+     * color Regions can only be filled with fillRect because of this, as the rectangle is axis-aligned in the rotated
+     * view.
+     *
+     * @param region   Region to draw
+     * @param x        X position of the center of the draw in the view
+     * @param y        Y position of the center of the draw in the view
+     * @param width    Width to draw the Region at in pixels
+     * @param height   Height to draw the Region at in pixels
+     * @param rotation Counter-clock-wise rotation of the draw around its center in degrees
+     */
+    @Override
+    public void draw(Region region, float x, float y, float width, float height, float rotation) {
+        if (!applied || Float.compare(rotation, appliedRotation) != 0) apply(rotation);
+        if (Float.compare(rotation, 0) != 0) {
+            float rotatedX = x * cos - y * sin;
+            y = x * sin + y * cos;
+            x = rotatedX;
+        }
+
+        Color color = region.getColor();
+        if (color != null) {
+            fill(color);
+            graphicsContext.fillRect(x - (width / 2.0), y - (height / 2.0), width, height);
+            return;
+        }
+        Image scaled = scaleCache != null && width == (int) width && height == (int) height ?
+                scaleCache.get(region, (int) width, (int) height) : null;
+        if (scaled != null) {
+            graphicsContext.drawImage(scaled, x - (width / 2.0), y - (height / 2.0));
+        } else {
+            graphicsContext.drawImage(region.getImage(), region.getX(), region.getY(), region.getWidth(),
+                    region.getHeight(), x - (width / 2.0), y - (height / 2.0), width, height);
+        }
+    }
+
+    /**
+     * Draw a Region of an Image to the Canvas many times without rotation, setting the transform at most once
+     *
+     * @param region Region to draw
+     * @param rects  Draws stored as center x, center y, width, and height in the view
+     * @param count  Number of draws
+     */
+    @Override
+    public void draw(Region region, float[] rects, int count) {
+        if (!applied || Float.compare(appliedRotation, 0) != 0) apply(0);
+        Color color = region.getColor();
+        if (color != null) {
+            fill(color);
+            for (int i = 0; i < count * 4; i += 4) {
+                graphicsContext.fillRect(rects[i] - (rects[i + 2] / 2.0), rects[i + 1] - (rects[i + 3] / 2.0),
+                        rects[i + 2], rects[i + 3]);
+            }
+            return;
+        }
+        Image image = region.getImage();
+        int regionX = region.getX();
+        int regionY = region.getY();
+        int regionWidth = region.getWidth();
+        int regionHeight = region.getHeight();
+        for (int i = 0; i < count * 4; i += 4) {
+            float width = rects[i + 2];
+            float height = rects[i + 3];
+            graphicsContext.drawImage(image, regionX, regionY, regionWidth, regionHeight,
+                    rects[i] - (width / 2.0), rects[i + 1] - (height / 2.0), width, height);
+        }
+    }
+
+    /**
+     * Draw a Region whose pixels change every frame over the whole Canvas, skipping the ScaleCache so it is never
+     * drawn from a stale pre-scaled copy
+     *
+     * @param region Region to draw
+     * @param width  Width to draw the Region at in pixels
+     * @param height Height to draw the Region at in pixels
+     */
+    @Override
+    public void present(Region region, float width, float height) {
+        setView(0, 0, 0);
+        if (!applied || Float.compare(appliedRotation, 0) != 0) apply(0);
+        graphicsContext.drawImage(region.getImage(), region.getX(), region.getY(), region.getWidth(),
+                region.getHeight(), 0, 0, width, height);
+    }
+
+    /**
+     * Apply the transform for the current view rotation and a draw rotation to the GraphicsContext
+     *
+     * @param rotation Counter-clock-wise rotation of the draws in degrees
+     */
+    private void apply(float rotation) {
+        transform.setToTransform(base);
+        if (Float.compare(viewRotation, 0) != 0) transform.appendRotation(-viewRotation, pivotX, pivotY);
+        if (Float.compare(rotation, 0) != 0) transform.appendRotation(-rotation);
+        graphicsContext.setTransform(transform);
+        double radians = Math.toRadians(rotation);
+        cos = (float) Math.cos(radians);
+        sin = (float) Math.sin(radians);
+        appliedRotation = rotation;
+        applied = true;
+    }
+
+    /**
+     * Set the fill Color of the GraphicsContext if it is not already set
+     *
+     * @param color Fill Color
+     */
+    private void fill(Color color) {
+        if (color != fill) {
+            graphicsContext.setFill(color);
+            fill = color;
+        }
+    }
+
+    /**
+     * Restore the transform the GraphicsContext had when the frame began
+     */
+    private void reset() {
+        graphicsContext.setTransform(base);
+        applied = false;
+    }
+
+    /**
+     * Restore the transform the GraphicsContext had when the frame began
+     */
+    @Override
+    public void end() {
+        reset();
+    }
+
+    /**
+     * Get the GraphicsContext being drawn to
+     *
+     * @return GraphicsContext of the Canvas
+     */
+    public GraphicsContext getGraphicsContext() {
+        return graphicsContext;
+    }
+
+    /**
+     * Get the cache of pre-scaled Sprite images
+     *
+     * @return ScaleCache, or null if disabled
+     */
+    public ScaleCache getScaleCache() {
+        return scaleCache;
+    }
+
+    /**
+     * Set the cache of pre-scaled Sprite images
+     *
+     * @param scaleCache ScaleCache, or null to always scale while drawing
+     * @return This CanvasTarget
+     */
+    public CanvasTarget setScaleCache(ScaleCache scaleCache) {
+        this.scaleCache = scaleCache;
+        return this;
+    }
+}
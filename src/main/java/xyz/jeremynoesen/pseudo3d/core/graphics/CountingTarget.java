@@ -0,0 +1,216 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+/**
+ * RenderTarget which draws nothing, only counting what would have been drawn
+ * <br>
+ * This is useful for measuring the projection and culling work of a Renderer without any drawing cost
+ *
+ * @author Jeremy Noesen
+ */
+public class CountingTarget implements RenderTarget {
+
+    /**
+     * Width of the target
+     */
+    private float width;
+
+    /**
+     * Height of the target
+     */
+    private float height;
+
+    /**
+     * Number of frames begun
+     */
+    private long frames;
+
+    /**
+     * Number of draws
+     */
+    private long draws;
+
+    /**
+     * Number of pixels covered by draws, before clipping
+     */
+    private double pixels;
+
+    /**
+     * Number of full or clipped clears
+     */
+    private long clears;
+
+    /**
+     * Create a new CountingTarget with a set size
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     */
+    public CountingTarget(float width, float height) {
+        this.width = width;
+        this.height = height;
+        reset();
+    }
+
+    /**
+     * Get the width of the target
+     *
+     * @return Width in pixels
+     */
+    @Override
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the target
+     *
+     * @return Height in pixels
+     */
+    @Override
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Count a new frame
+     */
+    @Override
+    public void begin() {
+        frames++;
+    }
+
+    /**
+     * Count a full clear
+     */
+    @Override
+    public void clear() {
+        clears++;
+    }
+
+    /**
+     * Count a clipped clear
+     *
+     * @param rects Rectangles stored as min x, min y, max x, and max y
+     * @param count Number of rectangles
+     */
+    @Override
+    public void clip(float[] rects, int count) {
+        clears++;
+    }
+
+    /**
+     * Stop clipping, which does nothing
+     */
+    @Override
+    public void unclip() {
+    }
+
+    /**
+     * Set the view rotation, which does nothing
+     *
+     * @param rotation Counter-clock-wise rotation of the view in degrees
+     * @param pivotX   X position of the point the view rotates around
+     * @param pivotY   Y position of the point the view rotates around
+     */
+    @Override
+    public void setView(float rotation, float pivotX, float pivotY) {
+    }
+
+    /**
+     * Count a draw and the pixels it covers
+     *
+     * @param region   Region to draw
+     * @param x        X position of the center of the draw in the view
+     * @param y        Y position of the center of the draw in the view
+     * @param width    Width to draw the Region at in pixels
+     * @param height   Height to draw the Region at in pixels
+     * @param rotation Counter-clock-wise rotation of the draw around its center in degrees
+     */
+    @Override
+    public void draw(Region region, float x, float y, float width, float height, float rotation) {
+        draws++;
+        pixels += (double) width * height;
+    }
+
+    /**
+     * Count many unrotated draws and the pixels they cover
+     *
+     * @param region Region to draw
+     * @param rects  Draws stored as center x, center y, width, and height in the view
+     * @param count  Number of draws
+     */
+    @Override
+    public void draw(Region region, float[] rects, int count) {
+        draws += count;
+        for (int i = 0; i < count * 4; i += 4) pixels += (double) rects[i + 2] * rects[i + 3];
+    }
+
+    /**
+     * Finish the frame, which does nothing
+     */
+    @Override
+    public void end() {
+    }
+
+    /**
+     * Set the size of the target
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return This CountingTarget
+     */
+    public CountingTarget resize(float width, float height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Reset all counts to zero
+     *
+     * @return This CountingTarget
+     */
+    public CountingTarget reset() {
+        frames = 0;
+        draws = 0;
+        pixels = 0;
+        clears = 0;
+        return this;
+    }
+
+    /**
+     * Get the number of frames begun
+     *
+     * @return Frame count
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get the number of draws
+     *
+     * @return Draw count
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Get the number of pixels covered by draws, before clipping
+     *
+     * @return Pixel count
+     */
+    public double getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Get the number of full or clipped clears
+     *
+     * @return Clear count
+     */
+    public long getClears() {
+        return clears;
+    }
+}
@@ -0,0 +1,126 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+/**
+ * Set of rectangles of a RenderTarget that need to be redrawn
+ *
+ * @author Jeremy Noesen
+ */
+class DirtyArea {
+
+    /**
+     * Maximum number of separate rectangles before they are merged into one
+     */
+    private static final int MAX_RECTS = 32;
+
+    /**
+     * Rectangles stored as min x, min y, max x, and max y
+     */
+    private final float[] rects;
+
+    /**
+     * Number of rectangles
+     */
+    private int count;
+
+    /**
+     * Create a new empty DirtyArea
+     */
+    DirtyArea() {
+        rects = new float[MAX_RECTS * 4];
+        count = 0;
+    }
+
+    /**
+     * Remove all rectangles
+     */
+    void reset() {
+        count = 0;
+    }
+
+    /**
+     * Check if there is nothing to redraw
+     *
+     * @return True if there are no rectangles
+     */
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Add a rectangle to redraw, merging it with any rectangles it overlaps
+     * <br>
+     * The rectangle is expanded to whole pixels with a one pixel margin
+     *
+     * @param minX Minimum x of the rectangle
+     * @param minY Minimum y of the rectangle
+     * @param maxX Maximum x of the rectangle
+     * @param maxY Maximum y of the rectangle
+     */
+    void add(float minX, float minY, float maxX, float maxY) {
+        minX = (float) Math.floor(minX) - 1;
+        minY = (float) Math.floor(minY) - 1;
+        maxX = (float) Math.ceil(maxX) + 1;
+        maxY = (float) Math.ceil(maxY) + 1;
+
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count * 4; i += 4) {
+                if (minX <= rects[i + 2] && maxX >= rects[i] && minY <= rects[i + 3] && maxY >= rects[i + 1]) {
+                    minX = Math.min(minX, rects[i]);
+                    minY = Math.min(minY, rects[i + 1]);
+                    maxX = Math.max(maxX, rects[i + 2]);
+                    maxY = Math.max(maxY, rects[i + 3]);
+                    count--;
+                    System.arraycopy(rects, count * 4, rects, i, 4);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+
+        if (count == MAX_RECTS) {
+            for (int i = 0; i < count * 4; i += 4) {
+                minX = Math.min(minX, rects[i]);
+                minY = Math.min(minY, rects[i + 1]);
+                maxX = Math.max(maxX, rects[i + 2]);
+                maxY = Math.max(maxY, rects[i + 3]);
+            }
+            count = 0;
+        }
+
+        rects[count * 4] = minX;
+        rects[count * 4 + 1] = minY;
+        rects[count * 4 + 2] = maxX;
+        rects[count * 4 + 3] = maxY;
+        count++;
+    }
+
+    /**
+     * Check if a rectangle overlaps any rectangle to redraw
+     *
+     * @param minX Minimum x of the rectangle
+     * @param minY Minimum y of the rectangle
+     * @param maxX Maximum x of the rectangle
+     * @param maxY Maximum y of the rectangle
+     * @return True if the rectangle needs to be redrawn
+     */
+    boolean overlaps(float minX, float minY, float maxX, float maxY) {
+        for (int i = 0; i < count * 4; i += 4) {
+            if (minX <= rects[i + 2] && maxX >= rects[i] && minY <= rects[i + 3] && maxY >= rects[i + 1])
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Clip a RenderTarget to the rectangles and clear them
+     * <br>
+     * The RenderTarget must be unclipped once drawing is done
+     *
+     * @param target RenderTarget to clip and clear
+     */
+    void clip(RenderTarget target) {
+        target.clip(rects, count);
+    }
+}
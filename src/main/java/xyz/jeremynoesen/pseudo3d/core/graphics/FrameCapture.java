@@ -0,0 +1,294 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import xyz.jeremynoesen.pseudo3d.core.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Headless renderer which renders a Scene offscreen and writes every frame to an image file
+ * <br>
+ * Frames are rendered as fast as possible with a fixed delta time instead of at a set framerate, and no window or
+ * Canvas is needed. Rendered frames are copied into a small pool of buffers and written in batches on a separate
+ * thread, so memory stays flat no matter how many frames are captured.
+ *
+ * @author Jeremy Noesen
+ */
+public class FrameCapture {
+
+    /**
+     * File formats frames can be written in
+     */
+    public enum Format {
+        /**
+         * PNG image with 8-bit straight-alpha RGBA pixels
+         */
+        PNG,
+        /**
+         * Raw 8-bit straight-alpha RGBA pixels in rows from top to bottom, with no header
+         */
+        RGBA;
+    }
+
+    /**
+     * Time to wait for a free frame buffer before checking that the writer thread is still running, in milliseconds
+     */
+    private static final long WRITER_CHECK_INTERVAL = 100;
+
+    /**
+     * Scene being captured
+     */
+    private final Scene scene;
+
+    /**
+     * Offscreen target the Scene is rendered to
+     */
+    private final ImageTarget target;
+
+    /**
+     * Format to write frames in
+     */
+    private Format format;
+
+    /**
+     * Deflate compression level for PNG frames
+     */
+    private int compressionLevel;
+
+    /**
+     * Number of frame buffers shared between rendering and writing
+     */
+    private int buffers;
+
+    /**
+     * Whether to tick the Scene before rendering each frame
+     */
+    private boolean ticking;
+
+    /**
+     * First error from the writer thread during the current capture, including unchecked errors that stop it
+     */
+    private volatile Throwable error;
+
+    /**
+     * Create a new FrameCapture for a Scene at a set resolution
+     *
+     * @param scene  Scene to capture
+     * @param width  Width of the frames in pixels
+     * @param height Height of the frames in pixels
+     */
+    public FrameCapture(Scene scene, int width, int height) {
+        this.scene = scene;
+        target = new ImageTarget(width, height).setPresenting(false);
+        format = Format.PNG;
+        compressionLevel = Deflater.BEST_SPEED;
+        buffers = 4;
+        ticking = true;
+    }
+
+    /**
+     * Render frames of the Scene and write them to a directory as "frame_000000" and onward, with the file extension
+     * of the format
+     * <br>
+     * Returns once every frame has been written
+     *
+     * @param directory Directory to write frames to, which is created if needed
+     * @param frames    Number of frames to capture
+     * @param deltaTime Time between frames in seconds, used for ticking and Sprite updating
+     * @throws IOException If the directory could not be created or a frame could not be written
+     */
+    public void capture(File directory, int frames, float deltaTime) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create directory " + directory);
+
+        int width = (int) target.getWidth();
+        int height = (int) target.getHeight();
+        ArrayBlockingQueue<int[]> free = new ArrayBlockingQueue<>(buffers);
+        ArrayBlockingQueue<int[]> written = new ArrayBlockingQueue<>(buffers + 1);
+        for (int i = 0; i < buffers; i++) free.add(new int[width * height]);
+        FrameWriter writer = new FrameWriter(width, height, format, compressionLevel);
+        String extension = format == Format.PNG ? ".png" : ".rgba";
+        int[] end = new int[0];
+        error = null;
+
+        Thread thread = new Thread(() -> {
+            ArrayList<int[]> batch = new ArrayList<>(buffers + 1);
+            int index = 0;
+            try {
+                while (true) {
+                    batch.add(written.take());
+                    written.drainTo(batch);
+                    for (int[] pixels : batch) {
+                        if (pixels == end) return;
+                        if (error == null) {
+                            try {
+                                String name = String.format("frame_%06d%s", index, extension);
+                                writer.write(pixels, new File(directory, name));
+                            } catch (Throwable e) {
+                                error = e;
+                            }
+                        }
+                        index++;
+                        free.add(pixels);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                if (error == null) error = e;
+            } finally {
+                writer.close();
+            }
+        }, "Pseudo3D Frame Writer");
+        thread.setDaemon(true);
+        thread.start();
+
+        boolean stopped = false;
+        try {
+            for (int i = 0; i < frames && error == null; i++) {
+                if (ticking) scene.tick(deltaTime);
+                scene.render(target, deltaTime);
+                int[] pixels = nextBuffer(free, thread);
+                if (pixels == null) {
+                    stopped = true;
+                    break;
+                }
+                System.arraycopy(target.getPixels(), 0, pixels, 0, pixels.length);
+                written.put(pixels);
+            }
+            written.put(end);
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new IOException("Frame capture was interrupted", e);
+        }
+
+        if (error instanceof IOException) throw (IOException) error;
+        if (error != null) throw new IOException("Frame writer failed", error);
+        if (stopped) throw new IOException("Frame writer stopped before writing every frame");
+    }
+
+    /**
+     * Wait for a free frame buffer, giving up if the writer thread fails or stops, since it would never free one
+     *
+     * @param free   Frame buffers free to render into
+     * @param thread Writer thread
+     * @return Free frame buffer, or null if the writer failed or stopped
+     * @throws InterruptedException If interrupted while waiting
+     */
+    private int[] nextBuffer(ArrayBlockingQueue<int[]> free, Thread thread) throws InterruptedException {
+        while (true) {
+            int[] pixels = free.poll(WRITER_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            if (pixels != null) return pixels;
+            if (error != null || !thread.isAlive()) return null;
+        }
+    }
+
+    /**
+     * Get the offscreen target the Scene is rendered to
+     *
+     * @return ImageTarget of the capture
+     */
+    public ImageTarget getTarget() {
+        return target;
+    }
+
+    /**
+     * Get the Scene being captured
+     *
+     * @return Scene being captured
+     */
+    public Scene getScene() {
+        return scene;
+    }
+
+    /**
+     * Get the format frames are written in
+     *
+     * @return Frame file format
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Set the format to write frames in
+     *
+     * @param format Frame file format
+     * @return This FrameCapture
+     */
+    public FrameCapture setFormat(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Get the deflate compression level for PNG frames
+     *
+     * @return Compression level from 0 to 9
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Set the deflate compression level for PNG frames, where lower levels write faster but produce larger files
+     *
+     * @param compressionLevel Compression level from 0 to 9
+     * @return This FrameCapture
+     */
+    public FrameCapture setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = Math.max(0, Math.min(9, compressionLevel));
+        return this;
+    }
+
+    /**
+     * Get the number of frame buffers shared between rendering and writing
+     *
+     * @return Number of frame buffers
+     */
+    public int getBuffers() {
+        return buffers;
+    }
+
+    /**
+     * Set the number of frame buffers shared between rendering and writing
+     * <br>
+     * More buffers let rendering run further ahead of a slow disk, at the cost of one frame of memory each
+     *
+     * @param buffers Number of frame buffers, at least 1
+     * @return This FrameCapture
+     */
+    public FrameCapture setBuffers(int buffers) {
+        this.buffers = Math.max(1, buffers);
+        return this;
+    }
+
+    /**
+     * Check if the Scene is ticked before rendering each frame
+     *
+     * @return True if ticking
+     */
+    public boolean isTicking() {
+        return ticking;
+    }
+
+    /**
+     * Set whether to tick the Scene before rendering each frame
+     * <br>
+     * Disable this to capture a Scene that is updated some other way between captures
+     *
+     * @param ticking True to tick the Scene every frame
+     * @return This FrameCapture
+     */
+    public FrameCapture setTicking(boolean ticking) {
+        this.ticking = ticking;
+        return this;
+    }
+}
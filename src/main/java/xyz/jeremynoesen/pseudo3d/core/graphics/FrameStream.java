@@ -0,0 +1,203 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ring buffer of frames of a streamed animated Sprite, decoding frames in the background a few frames ahead of the
+ * current frame and dropping frames once they fall behind
+ * <br>
+ * Frames are decoded outside of the shared Assets cache, so a streamed Sprite never holds more decoded frames than
+ * its ring buffer has slots
+ *
+ * @author Jeremy Noesen
+ */
+class FrameStream {
+
+    /**
+     * Number of advances a frame that failed to decode waits before it is requested again
+     */
+    private static final int RETRY_ADVANCES = 60;
+
+    /**
+     * Paths of every frame
+     */
+    private final String[] src;
+
+    /**
+     * Region shown for frames that are not decoded
+     */
+    private final Region placeholder;
+
+    /**
+     * Frame held by each slot, or -1 if the slot is empty
+     */
+    private final int[] frames;
+
+    /**
+     * Decode of the frame held by each slot
+     */
+    private final CompletableFuture<Image>[] decodes;
+
+    /**
+     * Whether the frame held by each slot has been swapped into the Sprite frames
+     */
+    private final boolean[] installed;
+
+    /**
+     * Advances left before the frame held by each slot is requested again if its decode failed
+     */
+    private final int[] retries;
+
+    /**
+     * Frames wanted in the ring buffer for the current frame, reused between advances
+     */
+    private final int[] wanted;
+
+    /**
+     * Create a new FrameStream
+     *
+     * @param src         Paths of every frame
+     * @param ahead       Number of frames to decode ahead of the current frame
+     * @param placeholder Region shown for frames that are not decoded
+     */
+    @SuppressWarnings("unchecked")
+    FrameStream(String[] src, int ahead, Region placeholder) {
+        this.src = src;
+        this.placeholder = placeholder;
+        int slots = Math.max(1, Math.min(src.length, ahead + 1));
+        frames = new int[slots];
+        Arrays.fill(frames, -1);
+        decodes = new CompletableFuture[slots];
+        installed = new boolean[slots];
+        retries = new int[slots];
+        wanted = new int[slots];
+    }
+
+    /**
+     * Request the current frame and the frames ahead of it, swap decoded frames into the Sprite frames, and swap
+     * frames dropped from the ring buffer back to the placeholder
+     * <br>
+     * A frame that failed to decode keeps its slot and shows the placeholder, and is only requested again after a
+     * number of advances or once it leaves the ring buffer and is wanted again. This must be called on the thread
+     * updating the Sprite.
+     *
+     * @param regions   Frames of the Sprite, updated in place
+     * @param current   Current frame
+     * @param direction 1 if the animation plays forward, or -1 if it plays backward
+     * @param loop      True if the animation loops
+     */
+    void advance(ArrayList<Region> regions, int current, int direction, boolean loop) {
+        int count = 0;
+        for (int i = 0; i < frames.length; i++) {
+            int frame = current + i * direction;
+            if (loop) frame = Math.floorMod(frame, src.length);
+            else if (frame < 0 || frame >= src.length) break;
+            wanted[count++] = frame;
+        }
+        for (int slot = 0; slot < frames.length; slot++) {
+            if (frames[slot] < 0) continue;
+            if (indexOf(wanted, count, frames[slot]) < 0) drop(regions, slot);
+            else if (decodes[slot].isCompletedExceptionally() && --retries[slot] <= 0) frames[slot] = -1;
+        }
+        for (int i = 0; i < count; i++) {
+            if (indexOf(frames, frames.length, wanted[i]) < 0) request(wanted[i]);
+        }
+        for (int slot = 0; slot < frames.length; slot++) {
+            if (frames[slot] >= 0 && !installed[slot] && decodes[slot].isDone() &&
+                    !decodes[slot].isCompletedExceptionally()) {
+                regions.set(frames[slot], new Region(decodes[slot].join()));
+                installed[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * Find a frame in part of an array
+     *
+     * @param array Frames to search
+     * @param count Number of frames to search
+     * @param frame Frame to find
+     * @return Index of the frame, or -1 if not found
+     */
+    private static int indexOf(int[] array, int count, int frame) {
+        for (int i = 0; i < count; i++) if (array[i] == frame) return i;
+        return -1;
+    }
+
+    /**
+     * Start decoding a frame into an empty slot
+     *
+     * @param frame Frame to request
+     */
+    private void request(int frame) {
+        int slot = indexOf(frames, frames.length, -1);
+        frames[slot] = frame;
+        decodes[slot] = Assets.decodeAsync(src[frame]);
+        installed[slot] = false;
+        retries[slot] = RETRY_ADVANCES;
+    }
+
+    /**
+     * Drop the frame held by a slot, cancelling its decode and showing the placeholder for it again
+     *
+     * @param regions Frames of the Sprite, updated in place
+     * @param slot    Slot to empty
+     */
+    private void drop(ArrayList<Region> regions, int slot) {
+        decodes[slot].cancel(false);
+        regions.set(frames[slot], placeholder);
+        frames[slot] = -1;
+    }
+
+    /**
+     * Check if a frame is decoded
+     *
+     * @param region Region of the frame
+     * @return True if the Region is a decoded frame rather than the placeholder
+     */
+    boolean isDecoded(Region region) {
+        return region != placeholder;
+    }
+
+    /**
+     * Cancel every decode and drop every frame
+     * <br>
+     * This must be called on the thread updating the Sprite
+     *
+     * @param regions Frames of the Sprite, updated in place
+     */
+    void clear(ArrayList<Region> regions) {
+        for (int slot = 0; slot < frames.length; slot++) if (frames[slot] >= 0) drop(regions, slot);
+    }
+
+    /**
+     * Get the Region shown for frames that are not decoded
+     *
+     * @return Placeholder Region
+     */
+    Region getPlaceholder() {
+        return placeholder;
+    }
+
+    /**
+     * Get the paths of every frame
+     *
+     * @return Frame paths
+     */
+    String[] getSources() {
+        return src;
+    }
+
+    /**
+     * Get the number of frames decoded ahead of the current frame
+     *
+     * @return Frames ahead
+     */
+    int getAhead() {
+        return frames.length - 1;
+    }
+}
@@ -0,0 +1,231 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encoder writing premultiplied ARGB frames to PNG or raw RGBA files
+ * <br>
+ * Pixels are converted a row at a time and compressed data is written in fixed-size chunks as it is produced, so
+ * memory use does not grow with the frame size or the number of frames written
+ *
+ * @author Jeremy Noesen
+ */
+class FrameWriter {
+
+    /**
+     * Signature at the start of every PNG file
+     */
+    private static final byte[] PNG_SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    /**
+     * Maximum size of each compressed PNG data chunk in bytes
+     */
+    private static final int CHUNK_SIZE = 65536;
+
+    /**
+     * Width of the frames
+     */
+    private final int width;
+
+    /**
+     * Height of the frames
+     */
+    private final int height;
+
+    /**
+     * Format to write the frames in
+     */
+    private final FrameCapture.Format format;
+
+    /**
+     * Compressor for PNG image data, reset for every frame
+     */
+    private final Deflater deflater;
+
+    /**
+     * Checksum for PNG chunks
+     */
+    private final CRC32 crc;
+
+    /**
+     * Straight RGBA bytes of one row, with a leading PNG filter byte
+     */
+    private final byte[] row;
+
+    /**
+     * Compressed bytes waiting to be written as a chunk
+     */
+    private final byte[] chunk;
+
+    /**
+     * Buffer for chunk lengths and types
+     */
+    private final byte[] header;
+
+    /**
+     * Create a new FrameWriter for frames of a set size
+     *
+     * @param width            Width of the frames
+     * @param height           Height of the frames
+     * @param format           Format to write the frames in
+     * @param compressionLevel Deflate compression level for PNG frames, from 0 to 9
+     */
+    FrameWriter(int width, int height, FrameCapture.Format format, int compressionLevel) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        deflater = new Deflater(compressionLevel);
+        crc = new CRC32();
+        row = new byte[1 + width * 4];
+        chunk = new byte[CHUNK_SIZE];
+        header = new byte[8];
+    }
+
+    /**
+     * Write a frame to a file, replacing it if it exists
+     *
+     * @param pixels Premultiplied ARGB pixels of the frame, in rows from top to bottom
+     * @param file   File to write to
+     * @throws IOException If the file could not be written
+     */
+    void write(int[] pixels, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), CHUNK_SIZE)) {
+            if (format == FrameCapture.Format.PNG) writePng(pixels, out);
+            else writeRgba(pixels, out);
+        }
+    }
+
+    /**
+     * Release the compressor
+     */
+    void close() {
+        deflater.end();
+    }
+
+    /**
+     * Write a frame as raw straight-alpha RGBA bytes without any header
+     *
+     * @param pixels Premultiplied ARGB pixels of the frame
+     * @param out    Stream to write to
+     * @throws IOException If the stream could not be written
+     */
+    private void writeRgba(int[] pixels, OutputStream out) throws IOException {
+        for (int y = 0; y < height; y++) {
+            convertRow(pixels, y);
+            out.write(row, 1, width * 4);
+        }
+    }
+
+    /**
+     * Write a frame as a PNG with straight-alpha 8-bit RGBA pixels
+     *
+     * @param pixels Premultiplied ARGB pixels of the frame
+     * @param out    Stream to write to
+     * @throws IOException If the stream could not be written
+     */
+    private void writePng(int[] pixels, OutputStream out) throws IOException {
+        out.write(PNG_SIGNATURE);
+
+        putInt(chunk, 0, width);
+        putInt(chunk, 4, height);
+        chunk[8] = 8;
+        chunk[9] = 6;
+        chunk[10] = 0;
+        chunk[11] = 0;
+        chunk[12] = 0;
+        writeChunk(out, "IHDR", 13);
+
+        deflater.reset();
+        int length = 0;
+        for (int y = 0; y < height; y++) {
+            convertRow(pixels, y);
+            deflater.setInput(row);
+            while (!deflater.needsInput()) {
+                length += deflater.deflate(chunk, length, CHUNK_SIZE - length);
+                if (length == CHUNK_SIZE) {
+                    writeChunk(out, "IDAT", length);
+                    length = 0;
+                }
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            length += deflater.deflate(chunk, length, CHUNK_SIZE - length);
+            if (length == CHUNK_SIZE) {
+                writeChunk(out, "IDAT", length);
+                length = 0;
+            }
+        }
+        if (length > 0) writeChunk(out, "IDAT", length);
+
+        writeChunk(out, "IEND", 0);
+    }
+
+    /**
+     * Convert a row of premultiplied ARGB pixels to straight RGBA bytes after a filter byte of none
+     *
+     * @param pixels Premultiplied ARGB pixels of the frame
+     * @param y      Index of the row
+     */
+    private void convertRow(int[] pixels, int y) {
+        row[0] = 0;
+        int i = 1;
+        for (int x = y * width, end = x + width; x < end; x++) {
+            int pixel = pixels[x];
+            int a = pixel >>> 24;
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            if (a != 0 && a != 255) {
+                r = Math.min(255, (r * 255 + a / 2) / a);
+                g = Math.min(255, (g * 255 + a / 2) / a);
+                b = Math.min(255, (b * 255 + a / 2) / a);
+            }
+            row[i++] = (byte) r;
+            row[i++] = (byte) g;
+            row[i++] = (byte) b;
+            row[i++] = (byte) a;
+        }
+    }
+
+    /**
+     * Write the start of the chunk buffer as a PNG chunk
+     *
+     * @param out    Stream to write to
+     * @param type   Four letter chunk type
+     * @param length Number of bytes of the chunk buffer to write
+     * @throws IOException If the stream could not be written
+     */
+    private void writeChunk(OutputStream out, String type, int length) throws IOException {
+        putInt(header, 0, length);
+        for (int i = 0; i < 4; i++) header[4 + i] = (byte) type.charAt(i);
+        out.write(header, 0, 8);
+        out.write(chunk, 0, length);
+
+        crc.reset();
+        crc.update(header, 4, 4);
+        crc.update(chunk, 0, length);
+        putInt(header, 0, (int) crc.getValue());
+        out.write(header, 0, 4);
+    }
+
+    /**
+     * Store an int in big-endian byte order
+     *
+     * @param bytes  Array to store in
+     * @param offset Index to store at
+     * @param value  Value to store
+     */
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
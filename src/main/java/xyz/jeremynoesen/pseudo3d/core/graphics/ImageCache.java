@@ -0,0 +1,152 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of generated Images, evicting the least recently used Images once a pixel budget is exceeded
+ *
+ * @param <K> Type of key the Images are generated from
+ * @author Jeremy Noesen
+ */
+public abstract class ImageCache<K> {
+
+    /**
+     * Cached Images in order of least to most recently used
+     */
+    private final LinkedHashMap<K, Image> images;
+
+    /**
+     * Maximum total pixels of all cached Images
+     */
+    private long budget;
+
+    /**
+     * Total pixels of all cached Images
+     */
+    private long used;
+
+    /**
+     * Create a new ImageCache with a pixel budget
+     *
+     * @param budget Maximum total pixels of all cached Images
+     */
+    protected ImageCache(long budget) {
+        images = new LinkedHashMap<>(16, 0.75f, true);
+        this.budget = budget;
+        used = 0;
+    }
+
+    /**
+     * Get a cached Image and mark it as recently used
+     *
+     * @param key Key of the Image
+     * @return Cached Image, or null if not cached
+     */
+    protected Image lookup(K key) {
+        return images.get(key);
+    }
+
+    /**
+     * Add an Image to the cache, evicting least recently used Images until it fits the budget
+     * <br>
+     * Images larger than the whole budget are not stored
+     *
+     * @param key   Key of the Image
+     * @param image Image to cache
+     * @return True if the Image was stored
+     */
+    protected boolean store(K key, Image image) {
+        long pixels = pixels(image);
+        if (pixels > budget) return false;
+        Image previous = images.put(key, image);
+        if (previous != null) {
+            used -= pixels(previous);
+            evicted(previous);
+        }
+        used += pixels;
+        trim();
+        return true;
+    }
+
+    /**
+     * Evict least recently used Images until the cache fits its budget
+     */
+    private void trim() {
+        Iterator<Map.Entry<K, Image>> iterator = images.entrySet().iterator();
+        while (used > budget && iterator.hasNext()) {
+            Image image = iterator.next().getValue();
+            used -= pixels(image);
+            iterator.remove();
+            evicted(image);
+        }
+    }
+
+    /**
+     * Called when an Image is removed from the cache, so subclasses can release anything kept for it
+     *
+     * @param image Removed Image
+     */
+    protected void evicted(Image image) {
+    }
+
+    /**
+     * Get the number of pixels in an Image
+     *
+     * @param image Image to measure
+     * @return Pixel count
+     */
+    private static long pixels(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight();
+    }
+
+    /**
+     * Remove all cached Images
+     */
+    public void clear() {
+        images.clear();
+        used = 0;
+    }
+
+    /**
+     * Get the maximum total pixels of all cached Images
+     *
+     * @return Pixel budget
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set the maximum total pixels of all cached Images, evicting Images if needed
+     *
+     * @param budget New pixel budget
+     * @return This ImageCache
+     */
+    public ImageCache<K> setBudget(long budget) {
+        this.budget = budget;
+        trim();
+        return this;
+    }
+
+    /**
+     * Get the total pixels of all cached Images
+     *
+     * @return Used pixels
+     */
+    public long getUsed() {
+        return used;
+    }
+
+    /**
+     * Get the number of cached Images
+     *
+     * @return Number of cached Images
+     */
+    public int size() {
+        return images.size();
+    }
+}
@@ -0,0 +1,201 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.WritableImage;
+
+/**
+ * Offscreen RenderTarget rasterizing into an image with a software Rasterizer
+ * <br>
+ * This needs no Canvas or window, so it can be used to render on machines without a display
+ *
+ * @author Jeremy Noesen
+ */
+public class ImageTarget implements RenderTarget {
+
+    /**
+     * Rasterizer drawing into the image
+     */
+    private final Rasterizer rasterizer;
+
+    /**
+     * Whether the image is updated at the end of every frame
+     */
+    private boolean present;
+
+    /**
+     * Create a new ImageTarget with a set size
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     */
+    public ImageTarget(int width, int height) {
+        this(new Rasterizer(width, height));
+    }
+
+    /**
+     * Create a new ImageTarget drawing with an existing Rasterizer
+     *
+     * @param rasterizer Rasterizer to draw with
+     */
+    public ImageTarget(Rasterizer rasterizer) {
+        this.rasterizer = rasterizer;
+        present = true;
+    }
+
+    /**
+     * Get the width of the image
+     *
+     * @return Width in pixels
+     */
+    @Override
+    public float getWidth() {
+        return rasterizer.getWidth();
+    }
+
+    /**
+     * Get the height of the image
+     *
+     * @return Height in pixels
+     */
+    @Override
+    public float getHeight() {
+        return rasterizer.getHeight();
+    }
+
+    /**
+     * Prepare for a new frame, which needs nothing for an image
+     */
+    @Override
+    public void begin() {
+    }
+
+    /**
+     * Clear the whole image to transparent
+     */
+    @Override
+    public void clear() {
+        rasterizer.clear();
+    }
+
+    /**
+     * Rasterize pending draws, then limit rasterization to the rectangles and clear them
+     *
+     * @param rects Rectangles stored as min x, min y, max x, and max y
+     * @param count Number of rectangles
+     */
+    @Override
+    public void clip(float[] rects, int count) {
+        rasterizer.rasterize();
+        rasterizer.setClip(rects, count);
+        for (int i = 0; i < count * 4; i += 4) {
+            rasterizer.clear(rects[i], rects[i + 1], rects[i + 2] - rects[i], rects[i + 3] - rects[i + 1]);
+        }
+    }
+
+    /**
+     * Rasterize pending draws, then stop clipping
+     */
+    @Override
+    public void unclip() {
+        rasterizer.rasterize();
+        rasterizer.setClip(null, 0);
+    }
+
+    /**
+     * Set the rotation of the view that following draws are placed in
+     *
+     * @param rotation Counter-clock-wise rotation of the view in degrees
+     * @param pivotX   X position of the point the view rotates around
+     * @param pivotY   Y position of the point the view rotates around
+     */
+    @Override
+    public void setView(float rotation, float pivotX, float pivotY) {
+        rasterizer.setView(rotation, pivotX, pivotY);
+    }
+
+    /**
+     * Add a draw of a Region to the image
+     *
+     * @param region   Region to draw
+     * @param x        X position of the center of the draw in the view
+     * @param y        Y position of the center of the draw in the view
+     * @param width    Width to draw the Region at in pixels
+     * @param height   Height to draw the Region at in pixels
+     * @param rotation Counter-clock-wise rotation of the draw around its center in degrees
+     */
+    @Override
+    public void draw(Region region, float x, float y, float width, float height, float rotation) {
+        rasterizer.draw(region, x, y, width, height, rotation);
+    }
+
+    /**
+     * Rasterize all draws of the frame, and update the image if presenting
+     */
+    @Override
+    public void end() {
+        if (present) rasterizer.flush();
+        else rasterizer.rasterize();
+    }
+
+    /**
+     * Resize the image, discarding its contents if the size changed
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return This ImageTarget
+     */
+    public ImageTarget resize(int width, int height) {
+        rasterizer.resize(width, height);
+        return this;
+    }
+
+    /**
+     * Get the Image showing the rendered frame
+     * <br>
+     * Once requested, frames must end on the JavaFX application thread so the Image can be updated
+     *
+     * @return Image of the rendered frame
+     */
+    public WritableImage getImage() {
+        return rasterizer.getImage();
+    }
+
+    /**
+     * Get the premultiplied ARGB pixels of the rendered frame, in rows from top to bottom
+     *
+     * @return Pixel array, which is reused between frames
+     */
+    public int[] getPixels() {
+        return rasterizer.getPixels();
+    }
+
+    /**
+     * Get the Rasterizer drawing into the image
+     *
+     * @return Rasterizer
+     */
+    public Rasterizer getRasterizer() {
+        return rasterizer;
+    }
+
+    /**
+     * Check if the image is updated at the end of every frame
+     *
+     * @return True if presenting
+     */
+    public boolean isPresenting() {
+        return present;
+    }
+
+    /**
+     * Set whether the image is updated at the end of every frame
+     * <br>
+     * Disabling this keeps results in the pixel array only, so frames can end on any thread
+     *
+     * @param present True to update the image every frame
+     * @return This ImageTarget
+     */
+    public ImageTarget setPresenting(boolean present) {
+        this.present = present;
+        return this;
+    }
+}
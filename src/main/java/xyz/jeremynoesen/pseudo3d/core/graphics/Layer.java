@@ -0,0 +1,13 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+/**
+ * Layers of a render, drawn from first to last
+ * <br>
+ * When rendering to stacked Canvases, each Layer has its own Canvas, and the background and static Layers are only
+ * redrawn when the Camera or their contents change
+ *
+ * @author Jeremy Noesen
+ */
+public enum Layer {
+    BACKGROUND, STATIC, DYNAMIC;
+}
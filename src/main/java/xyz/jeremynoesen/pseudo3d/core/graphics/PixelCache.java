@@ -0,0 +1,173 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of decoded images as premultiplied ARGB pixels, so later runs copy pixels instead of decoding files
+ * <br>
+ * Each image is stored in its own file, keyed by the source path, and is only used while the source file keeps the
+ * same size and modification time. Cached pixels are read through a memory-mapped FileChannel.
+ *
+ * @author Jeremy Noesen
+ */
+public class PixelCache {
+
+    /**
+     * Bytes every cache file starts with
+     */
+    private static final int MAGIC = 0x50334450;
+
+    /**
+     * Version of the cache file format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Directory the cache files are stored in
+     */
+    private final Path directory;
+
+    /**
+     * Create a new PixelCache storing files in a directory, creating it if needed
+     *
+     * @param directory Path to the cache directory
+     * @throws IOException If the directory cannot be created
+     */
+    public PixelCache(String directory) throws IOException {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+    }
+
+    /**
+     * Load the cached pixels of an image file, if they are cached and the file has not changed since
+     *
+     * @param src Path to the image
+     * @return New Image with the cached pixels, or null if they are not cached or out of date
+     */
+    public Image load(String src) {
+        Path source = Paths.get(src).toAbsolutePath().normalize();
+        Path file = file(source);
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 26 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION ||
+                    buffer.getLong() != attributes.size() ||
+                    buffer.getLong() != attributes.lastModifiedTime().toMillis()) return null;
+
+            byte[] path = new byte[buffer.getShort() & 0xFFFF];
+            if (buffer.remaining() < path.length + 8) return null;
+            buffer.get(path);
+            if (!source.toString().equals(new String(path, StandardCharsets.UTF_8))) return null;
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (width <= 0 || height <= 0 || buffer.remaining() != width * height * 4) return null;
+
+            WritableImage image = new WritableImage(width, height);
+            image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(),
+                    buffer.slice().asIntBuffer(), width);
+            return image;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Store the decoded pixels of an image file, replacing any older pixels of the file
+     * <br>
+     * The pixels are written to a temporary file first, so a cache file is never read half-written
+     *
+     * @param src   Path to the image
+     * @param image Decoded Image of the file
+     * @return True if the pixels were stored
+     */
+    public boolean store(String src, Image image) {
+        if (image.isError() || image.getProgress() < 1 || image.getPixelReader() == null) return false;
+        Path source = Paths.get(src).toAbsolutePath().normalize();
+        Path file = file(source);
+        Path temp = null;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            int width = (int) image.getWidth();
+            int height = (int) image.getHeight();
+            int[] pixels = new int[width * height];
+            image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(),
+                    pixels, 0, width);
+            ByteBuffer bytes = ByteBuffer.allocate(pixels.length * 4);
+            bytes.asIntBuffer().put(pixels);
+            byte[] path = source.toString().getBytes(StandardCharsets.UTF_8);
+
+            temp = Files.createTempFile(directory, "pixels", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(attributes.size());
+                out.writeLong(attributes.lastModifiedTime().toMillis());
+                out.writeShort(path.length);
+                out.write(path);
+                out.writeInt(width);
+                out.writeInt(height);
+                out.write(bytes.array());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Get the cache file of an image file
+     *
+     * @param source Absolute normalized path to the image
+     * @return Path to the cache file
+     */
+    private Path file(Path source) {
+        byte[] path = source.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(path);
+        return directory.resolve(String.format("%08x%08x.argb", crc.getValue(), source.toString().hashCode()));
+    }
+
+    /**
+     * Delete every cache file
+     *
+     * @throws IOException If the directory cannot be read or a file cannot be deleted
+     */
+    public void clear() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.argb")) {
+            for (Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Get the directory the cache files are stored in
+     *
+     * @return Cache directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,158 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import xyz.jeremynoesen.pseudo3d.core.object.Entity;
+
+/**
+ * Screen placement of an Entity for a render frame, along with its placement from the previous frame
+ *
+ * @author Jeremy Noesen
+ */
+class Projection {
+
+    /**
+     * Entity being projected
+     */
+    Entity entity;
+
+    /**
+     * Index of the Entity in the Snapshot being drawn
+     */
+    int index;
+
+    /**
+     * Render frame the Projection was last updated in
+     */
+    long frame;
+
+    /**
+     * Whether the Entity passed view distance and scale checks
+     */
+    boolean projected;
+
+    /**
+     * Whether the Entity is on-screen and should be drawn
+     */
+    boolean onScreen;
+
+    /**
+     * Whether the Sprite is hidden behind opaque Sprites drawn after it
+     */
+    boolean occluded;
+
+    /**
+     * Layer the Sprite is drawn on
+     */
+    Layer layer;
+
+    /**
+     * Sprite of the Entity, or null if it is not drawn
+     */
+    Sprite sprite;
+
+    /**
+     * Region of the Sprite to draw
+     */
+    Region region;
+
+    /**
+     * X position of the Sprite center on the Canvas before Camera rotation
+     */
+    float x;
+
+    /**
+     * Y position of the Sprite center on the Canvas before Camera rotation
+     */
+    float y;
+
+    /**
+     * Distance from the Camera to the Entity along the z axis in grid units
+     */
+    float depth;
+
+    /**
+     * Scaled width of the Sprite in pixels
+     */
+    int width;
+
+    /**
+     * Scaled height of the Sprite in pixels
+     */
+    int height;
+
+    /**
+     * Counter-clock-wise rotation of the Sprite in degrees
+     */
+    float rotation;
+
+    /**
+     * Screen bounds of the drawn Sprite after all rotation
+     */
+    float minX, minY, maxX, maxY;
+
+    /**
+     * Whether the Entity was drawn in the previous frame
+     */
+    boolean prevOnScreen;
+
+    /**
+     * Layer drawn on in the previous frame
+     */
+    Layer prevLayer;
+
+    /**
+     * Region drawn in the previous frame
+     */
+    Region prevRegion;
+
+    /**
+     * Rotation of the Sprite drawn in the previous frame
+     */
+    float prevRotation;
+
+    /**
+     * Screen bounds of the Sprite drawn in the previous frame
+     */
+    float prevMinX, prevMinY, prevMaxX, prevMaxY;
+
+    /**
+     * Create a new Projection for an Entity
+     *
+     * @param entity Entity to project
+     */
+    Projection(Entity entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Keep the current placement as the previous placement before projecting a new frame
+     *
+     * @param frame New render frame
+     */
+    void advance(long frame) {
+        this.frame = frame;
+        prevOnScreen = onScreen;
+        prevLayer = layer;
+        prevRegion = region;
+        prevRotation = rotation;
+        prevMinX = minX;
+        prevMinY = minY;
+        prevMaxX = maxX;
+        prevMaxY = maxY;
+        projected = false;
+        onScreen = false;
+        occluded = false;
+    }
+
+    /**
+     * Check if the drawn Sprite changed since the previous frame
+     *
+     * @return True if the Sprite appeared, disappeared, moved, resized, changed Layer, or changed frame
+     */
+    boolean changed() {
+        if (onScreen != prevOnScreen) return true;
+        if (!onScreen) return false;
+        return layer != prevLayer || region != prevRegion || Float.compare(rotation, prevRotation) != 0 ||
+                Float.compare(minX, prevMinX) != 0 || Float.compare(minY, prevMinY) != 0 ||
+                Float.compare(maxX, prevMaxX) != 0 || Float.compare(maxY, prevMaxY) != 0;
+    }
+}
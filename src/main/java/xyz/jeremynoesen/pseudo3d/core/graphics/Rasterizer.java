@@ -0,0 +1,607 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Software rasterizer which draws Sprite Regions into a pixel buffer with nearest-neighbor sampling, alpha blending,
+ * and rotation
+ * <br>
+ * Draws are collected until rasterized in parallel in screen tiles, and the result is shown with a single Image update
+ * when flushed, copying and uploading only the tiles changed since the last flush
+ *
+ * @author Jeremy Noesen
+ */
+public class Rasterizer {
+
+    /**
+     * Width and height of each screen tile in pixels
+     */
+    private static final int TILE_SIZE = 64;
+
+    /**
+     * Number of values stored per draw for the inverse transform and source Region
+     */
+    private static final int STRIDE = 6;
+
+    /**
+     * Width of the pixel buffer
+     */
+    private int width;
+
+    /**
+     * Height of the pixel buffer
+     */
+    private int height;
+
+    /**
+     * Premultiplied ARGB pixels being rasterized into
+     */
+    private int[] pixels;
+
+    /**
+     * Direct buffer shared with the Image
+     */
+    private IntBuffer buffer;
+
+    /**
+     * JavaFX PixelBuffer backing the Image
+     */
+    private PixelBuffer<IntBuffer> pixelBuffer;
+
+    /**
+     * Image showing the rasterized pixels, created when first requested
+     */
+    private WritableImage image;
+
+    /**
+     * Premultiplied ARGB pixels of each source Image, read once when first drawn
+     */
+    private final WeakHashMap<Image, int[]> sources;
+
+    /**
+     * Counter-clock-wise rotation of the view in degrees
+     */
+    private float viewRotation;
+
+    /**
+     * X position of the point the view rotates around
+     */
+    private float pivotX;
+
+    /**
+     * Y position of the point the view rotates around
+     */
+    private float pivotY;
+
+    /**
+     * Clip rectangles limiting rasterization, stored as inclusive min x, min y, max x, and max y
+     */
+    private int[] clip;
+
+    /**
+     * Number of clip rectangles, where 0 means no clipping
+     */
+    private int clipCount;
+
+    /**
+     * Number of draws collected since the last rasterization
+     */
+    private int count;
+
+    /**
+     * Source pixels of each draw
+     */
+    private int[][] drawSources;
+
+    /**
+     * Source Image width of each draw
+     */
+    private int[] drawScans;
+
+    /**
+     * Source Region of each draw, stored as x, y, width, and height
+     */
+    private int[] drawRegions;
+
+    /**
+     * Screen bounds of each draw, stored as min x, min y, max x, and max y
+     */
+    private int[] drawBounds;
+
+    /**
+     * Inverse transform of each draw from screen pixels to source pixels
+     */
+    private float[] drawTransforms;
+
+    /**
+     * Number of tile columns
+     */
+    private int tilesX;
+
+    /**
+     * Number of tile rows
+     */
+    private int tilesY;
+
+    /**
+     * Indices of the draws touching each tile, in draw order
+     */
+    private int[][] bins;
+
+    /**
+     * Number of draws touching each tile
+     */
+    private int[] binCounts;
+
+    /**
+     * Whether each tile changed since the last flush
+     */
+    private boolean[] dirtyTiles;
+
+    /**
+     * Whether any tile changed since the last flush
+     */
+    private boolean dirty;
+
+    /**
+     * Create a new Rasterizer with a set size
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     */
+    public Rasterizer(int width, int height) {
+        sources = new WeakHashMap<>();
+        drawSources = new int[64][];
+        drawScans = new int[64];
+        drawRegions = new int[64 * 4];
+        drawBounds = new int[64 * 4];
+        drawTransforms = new float[64 * STRIDE];
+        clip = new int[0];
+        clipCount = 0;
+        resize(width, height);
+    }
+
+    /**
+     * Resize the pixel buffer, discarding its contents if the size changed
+     *
+     * @param width  Width in pixels
+     * @param height Height in pixels
+     * @return This Rasterizer
+     */
+    public Rasterizer resize(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (width == this.width && height == this.height) return this;
+
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+        buffer = null;
+        pixelBuffer = null;
+        image = null;
+        tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        bins = new int[tilesX * tilesY][16];
+        binCounts = new int[tilesX * tilesY];
+        dirtyTiles = new boolean[tilesX * tilesY];
+        dirty = false;
+        clipCount = 0;
+        return this;
+    }
+
+    /**
+     * Clear the pixel buffer to transparent and discard any draws that have not been rasterized
+     *
+     * @return This Rasterizer
+     */
+    public Rasterizer clear() {
+        Arrays.fill(pixels, 0);
+        markDirty(0, 0, width - 1, height - 1);
+        count = 0;
+        return this;
+    }
+
+    /**
+     * Clear a rectangle of the pixel buffer to transparent
+     * <br>
+     * Draws that have not been rasterized yet are not affected
+     *
+     * @param x      X position of the rectangle
+     * @param y      Y position of the rectangle
+     * @param width  Width of the rectangle
+     * @param height Height of the rectangle
+     * @return This Rasterizer
+     */
+    public Rasterizer clear(float x, float y, float width, float height) {
+        int minX = Math.max(0, (int) Math.floor(x));
+        int minY = Math.max(0, (int) Math.floor(y));
+        int maxX = Math.min(this.width, (int) Math.ceil(x + width));
+        int maxY = Math.min(this.height, (int) Math.ceil(y + height));
+        for (int row = minY; row < maxY && minX < maxX; row++) {
+            Arrays.fill(pixels, row * this.width + minX, row * this.width + maxX, 0);
+        }
+        if (minX < maxX && minY < maxY) markDirty(minX, minY, maxX - 1, maxY - 1);
+        return this;
+    }
+
+    /**
+     * Mark the tiles overlapping a rectangle as changed since the last flush
+     *
+     * @param minX Inclusive min x of the rectangle
+     * @param minY Inclusive min y of the rectangle
+     * @param maxX Inclusive max x of the rectangle
+     * @param maxY Inclusive max y of the rectangle
+     */
+    private void markDirty(int minX, int minY, int maxX, int maxY) {
+        for (int ty = minY / TILE_SIZE; ty <= maxY / TILE_SIZE; ty++) {
+            for (int tx = minX / TILE_SIZE; tx <= maxX / TILE_SIZE; tx++) dirtyTiles[ty * tilesX + tx] = true;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Limit rasterization to a set of rectangles, which should not overlap
+     * <br>
+     * The clip applies to all draws rasterized while it is set, so draws added before changing the clip should be
+     * rasterized first
+     *
+     * @param rects Rectangles stored as min x, min y, max x, and max y, or null to stop clipping
+     * @param count Number of rectangles
+     * @return This Rasterizer
+     */
+    public Rasterizer setClip(float[] rects, int count) {
+        if (rects == null || count <= 0) {
+            clipCount = 0;
+            return this;
+        }
+        if (clip.length < count * 4) clip = new int[count * 4];
+        clipCount = 0;
+        for (int i = 0; i < count * 4; i += 4) {
+            int minX = Math.max(0, (int) Math.floor(rects[i]));
+            int minY = Math.max(0, (int) Math.floor(rects[i + 1]));
+            int maxX = Math.min(width - 1, (int) Math.ceil(rects[i + 2]) - 1);
+            int maxY = Math.min(height - 1, (int) Math.ceil(rects[i + 3]) - 1);
+            if (minX > maxX || minY > maxY) continue;
+            clip[clipCount * 4] = minX;
+            clip[clipCount * 4 + 1] = minY;
+            clip[clipCount * 4 + 2] = maxX;
+            clip[clipCount * 4 + 3] = maxY;
+            clipCount++;
+        }
+        if (clipCount == 0) {
+            clip[0] = 0;
+            clip[1] = 0;
+            clip[2] = -1;
+            clip[3] = -1;
+            clipCount = 1;
+        }
+        return this;
+    }
+
+    /**
+     * Set the rotation of the view that following draws are placed in
+     *
+     * @param rotation Counter-clock-wise rotation of the view in degrees
+     * @param pivotX   X position of the point the view rotates around
+     * @param pivotY   Y position of the point the view rotates around
+     * @return This Rasterizer
+     */
+    public Rasterizer setView(float rotation, float pivotX, float pivotY) {
+        this.viewRotation = rotation;
+        this.pivotX = pivotX;
+        this.pivotY = pivotY;
+        return this;
+    }
+
+    /**
+     * Add a draw of a Region to be rasterized on the next rasterization
+     *
+     * @param region   Region to draw
+     * @param x        X position of the center of the draw in the view
+     * @param y        Y position of the center of the draw in the view
+     * @param width    Width to draw the Region at in pixels
+     * @param height   Height to draw the Region at in pixels
+     * @param rotation Counter-clock-wise rotation of the draw around its center in degrees
+     * @return This Rasterizer
+     */
+    public Rasterizer draw(Region region, float x, float y, float width, float height, float rotation) {
+        if (Float.compare(width, 0) <= 0 || Float.compare(height, 0) <= 0 ||
+                region.getWidth() <= 0 || region.getHeight() <= 0) return this;
+        int[] source = getSource(region.getImage());
+        if (source == null) return this;
+
+        double spriteAngle = Math.toRadians(-rotation);
+        double totalAngle = spriteAngle + Math.toRadians(-viewRotation);
+        float totalCos = (float) Math.cos(totalAngle);
+        float totalSin = (float) Math.sin(totalAngle);
+        float spriteCos = (float) Math.cos(spriteAngle);
+        float spriteSin = (float) Math.sin(spriteAngle);
+        float viewCos = (float) Math.cos(Math.toRadians(-viewRotation));
+        float viewSin = (float) Math.sin(Math.toRadians(-viewRotation));
+
+        float relX = x - pivotX;
+        float relY = y - pivotY;
+        float centerX = (relX * viewCos) - (relY * viewSin) + pivotX;
+        float centerY = (relX * viewSin) + (relY * viewCos) + pivotY;
+        float halfWidth = (Math.abs(width * totalCos) + Math.abs(height * totalSin)) / 2.0f;
+        float halfHeight = (Math.abs(width * totalSin) + Math.abs(height * totalCos)) / 2.0f;
+        int minX = Math.max(0, (int) Math.floor(centerX - halfWidth));
+        int minY = Math.max(0, (int) Math.floor(centerY - halfHeight));
+        int maxX = Math.min(this.width - 1, (int) Math.ceil(centerX + halfWidth));
+        int maxY = Math.min(this.height - 1, (int) Math.ceil(centerY + halfHeight));
+        if (minX > maxX || minY > maxY) return this;
+
+        ensureCapacity(count + 1);
+        int i = count++;
+        drawSources[i] = source;
+        drawScans[i] = (int) region.getImage().getWidth();
+        drawRegions[i * 4] = region.getX();
+        drawRegions[i * 4 + 1] = region.getY();
+        drawRegions[i * 4 + 2] = region.getWidth();
+        drawRegions[i * 4 + 3] = region.getHeight();
+        drawBounds[i * 4] = minX;
+        drawBounds[i * 4 + 1] = minY;
+        drawBounds[i * 4 + 2] = maxX;
+        drawBounds[i * 4 + 3] = maxY;
+
+        float offsetX = pivotX - x;
+        float offsetY = pivotY - y;
+        float localX = (offsetX * spriteCos) + (offsetY * spriteSin) + (width / 2.0f);
+        float localY = (-offsetX * spriteSin) + (offsetY * spriteCos) + (height / 2.0f);
+        float scaleX = region.getWidth() / width;
+        float scaleY = region.getHeight() / height;
+        drawTransforms[i * STRIDE] = totalCos * scaleX;
+        drawTransforms[i * STRIDE + 1] = totalSin * scaleX;
+        drawTransforms[i * STRIDE + 2] = (localX - (totalCos * pivotX) - (totalSin * pivotY)) * scaleX;
+        drawTransforms[i * STRIDE + 3] = -totalSin * scaleY;
+        drawTransforms[i * STRIDE + 4] = totalCos * scaleY;
+        drawTransforms[i * STRIDE + 5] = (localY + (totalSin * pivotX) - (totalCos * pivotY)) * scaleY;
+        return this;
+    }
+
+    /**
+     * Rasterize all draws since the last rasterization, then update the Image
+     * <br>
+     * Only the tiles changed since the last flush are copied into the Image buffer, and only their bounds are
+     * uploaded. If the Image has been requested, this must be called on the JavaFX application thread.
+     *
+     * @return This Rasterizer
+     */
+    public Rasterizer flush() {
+        rasterize();
+        if (pixelBuffer == null || !dirty) return this;
+        int minTileX = tilesX;
+        int minTileY = tilesY;
+        int maxTileX = -1;
+        int maxTileY = -1;
+        for (int tile = 0; tile < dirtyTiles.length; tile++) {
+            if (!dirtyTiles[tile]) continue;
+            dirtyTiles[tile] = false;
+            int tx = tile % tilesX;
+            int ty = tile / tilesX;
+            int minX = tx * TILE_SIZE;
+            int minY = ty * TILE_SIZE;
+            int tileWidth = Math.min(width, minX + TILE_SIZE) - minX;
+            int maxY = Math.min(height, minY + TILE_SIZE);
+            for (int row = minY; row < maxY; row++) {
+                buffer.position(row * width + minX);
+                buffer.put(pixels, row * width + minX, tileWidth);
+            }
+            minTileX = Math.min(minTileX, tx);
+            minTileY = Math.min(minTileY, ty);
+            maxTileX = Math.max(maxTileX, tx);
+            maxTileY = Math.max(maxTileY, ty);
+        }
+        buffer.rewind();
+        dirty = false;
+        int minX = minTileX * TILE_SIZE;
+        int minY = minTileY * TILE_SIZE;
+        Rectangle2D changed = new Rectangle2D(minX, minY, Math.min(width, (maxTileX + 1) * TILE_SIZE) - minX,
+                Math.min(height, (maxTileY + 1) * TILE_SIZE) - minY);
+        pixelBuffer.updateBuffer(b -> changed);
+        return this;
+    }
+
+    /**
+     * Rasterize all draws since the last rasterization in parallel, without updating the Image
+     *
+     * @return This Rasterizer
+     */
+    public Rasterizer rasterize() {
+        if (count == 0) return this;
+        Arrays.fill(binCounts, 0);
+        for (int i = 0; i < count; i++) {
+            int tileMaxX = drawBounds[i * 4 + 2] / TILE_SIZE;
+            int tileMaxY = drawBounds[i * 4 + 3] / TILE_SIZE;
+            for (int ty = drawBounds[i * 4 + 1] / TILE_SIZE; ty <= tileMaxY; ty++) {
+                for (int tx = drawBounds[i * 4] / TILE_SIZE; tx <= tileMaxX; tx++) {
+                    int tile = ty * tilesX + tx;
+                    if (binCounts[tile] == bins[tile].length)
+                        bins[tile] = Arrays.copyOf(bins[tile], binCounts[tile] * 2);
+                    bins[tile][binCounts[tile]++] = i;
+                    dirtyTiles[tile] = true;
+                }
+            }
+        }
+
+        IntStream.range(0, tilesX * tilesY).parallel().forEach(this::rasterizeTile);
+        dirty = true;
+        count = 0;
+        return this;
+    }
+
+    /**
+     * Rasterize all draws touching a tile in order
+     *
+     * @param tile Index of the tile
+     */
+    private void rasterizeTile(int tile) {
+        int tileMinX = (tile % tilesX) * TILE_SIZE;
+        int tileMinY = (tile / tilesX) * TILE_SIZE;
+        int tileMaxX = Math.min(width - 1, tileMinX + TILE_SIZE - 1);
+        int tileMaxY = Math.min(height - 1, tileMinY + TILE_SIZE - 1);
+
+        for (int b = 0; b < binCounts[tile]; b++) {
+            int i = bins[tile][b];
+            int[] source = drawSources[i];
+            int scan = drawScans[i];
+            int regionX = drawRegions[i * 4];
+            int regionY = drawRegions[i * 4 + 1];
+            int regionWidth = drawRegions[i * 4 + 2];
+            int regionHeight = drawRegions[i * 4 + 3];
+            float a = drawTransforms[i * STRIDE];
+            float bx = drawTransforms[i * STRIDE + 1];
+            float c = drawTransforms[i * STRIDE + 2];
+            float d = drawTransforms[i * STRIDE + 3];
+            float e = drawTransforms[i * STRIDE + 4];
+            float f = drawTransforms[i * STRIDE + 5];
+            int drawMinX = Math.max(tileMinX, drawBounds[i * 4]);
+            int drawMinY = Math.max(tileMinY, drawBounds[i * 4 + 1]);
+            int drawMaxX = Math.min(tileMaxX, drawBounds[i * 4 + 2]);
+            int drawMaxY = Math.min(tileMaxY, drawBounds[i * 4 + 3]);
+
+            for (int r = 0; r < Math.max(1, clipCount); r++) {
+                int minX = clipCount == 0 ? drawMinX : Math.max(drawMinX, clip[r * 4]);
+                int minY = clipCount == 0 ? drawMinY : Math.max(drawMinY, clip[r * 4 + 1]);
+                int maxX = clipCount == 0 ? drawMaxX : Math.min(drawMaxX, clip[r * 4 + 2]);
+                int maxY = clipCount == 0 ? drawMaxY : Math.min(drawMaxY, clip[r * 4 + 3]);
+
+                for (int y = minY; y <= maxY; y++) {
+                    float py = y + 0.5f;
+                    int row = y * width;
+                    for (int x = minX; x <= maxX; x++) {
+                        float px = x + 0.5f;
+                        float u = (a * px) + (bx * py) + c;
+                        float v = (d * px) + (e * py) + f;
+                        if (u < 0 || v < 0 || u >= regionWidth || v >= regionHeight) continue;
+                        int src = source[(regionY + (int) v) * scan + regionX + (int) u];
+                        pixels[row + x] = blend(src, pixels[row + x]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Blend a premultiplied ARGB pixel over another
+     *
+     * @param src Pixel being drawn
+     * @param dst Pixel being drawn over
+     * @return Blended pixel
+     */
+    private static int blend(int src, int dst) {
+        int alpha = src >>> 24;
+        if (alpha == 255) return src;
+        if (alpha == 0) return dst;
+        int inverse = 255 - alpha;
+        int a = alpha + (((dst >>> 24) * inverse + 127) / 255);
+        int r = ((src >> 16) & 0xFF) + ((((dst >> 16) & 0xFF) * inverse + 127) / 255);
+        int g = ((src >> 8) & 0xFF) + ((((dst >> 8) & 0xFF) * inverse + 127) / 255);
+        int b = (src & 0xFF) + (((dst & 0xFF) * inverse + 127) / 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Get the premultiplied ARGB pixels of a source Image, reading them if not read yet
+     *
+     * @param image Source Image
+     * @return Pixels of the Image, or null if it is not fully loaded
+     */
+    private int[] getSource(Image image) {
+        int[] source = sources.get(image);
+        if (source == null) {
+            if (image.getProgress() < 1 || image.isError() || image.getPixelReader() == null) return null;
+            int imageWidth = (int) image.getWidth();
+            int imageHeight = (int) image.getHeight();
+            source = new int[imageWidth * imageHeight];
+            image.getPixelReader().getPixels(0, 0, imageWidth, imageHeight,
+                    PixelFormat.getIntArgbPreInstance(), source, 0, imageWidth);
+            sources.put(image, source);
+        }
+        return source;
+    }
+
+    /**
+     * Grow the draw storage to hold a number of draws
+     *
+     * @param capacity Number of draws to hold
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= drawScans.length) return;
+        int size = Math.max(capacity, drawScans.length * 2);
+        drawSources = Arrays.copyOf(drawSources, size);
+        drawScans = Arrays.copyOf(drawScans, size);
+        drawRegions = Arrays.copyOf(drawRegions, size * 4);
+        drawBounds = Arrays.copyOf(drawBounds, size * 4);
+        drawTransforms = Arrays.copyOf(drawTransforms, size * STRIDE);
+    }
+
+    /**
+     * Forget the pixels read from a source Image, so they are read again when next drawn
+     * <br>
+     * This must be called after modifying a WritableImage that has already been drawn
+     *
+     * @param image Source Image to forget
+     * @return This Rasterizer
+     */
+    public Rasterizer invalidate(Image image) {
+        sources.remove(image);
+        return this;
+    }
+
+    /**
+     * Get the Image showing the rasterized pixels, updated on every flush
+     *
+     * @return Image backed by the pixel buffer
+     */
+    public WritableImage getImage() {
+        if (image == null) {
+            buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+            buffer.put(pixels);
+            buffer.rewind();
+            Arrays.fill(dirtyTiles, false);
+            dirty = false;
+            pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+            image = new WritableImage(pixelBuffer);
+        }
+        return image;
+    }
+
+    /**
+     * Get the premultiplied ARGB pixels as of the last flush, in rows from top to bottom
+     *
+     * @return Pixel array, which is reused between flushes
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Get the width of the pixel buffer
+     *
+     * @return Width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the pixel buffer
+     *
+     * @return Height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,268 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rectangular area of an Image used as the source of a Sprite frame
+ *
+ * @author Jeremy Noesen
+ */
+public class Region {
+
+    /**
+     * Maximum number of interned Colors before the interned Regions are cleared
+     */
+    private static final int MAX_COLORS = 1024;
+
+    /**
+     * Interned single-pixel Regions by Color
+     */
+    private static final ConcurrentHashMap<Color, Region> COLORS = new ConcurrentHashMap<>();
+
+    /**
+     * Image the Region is located in
+     */
+    private final Image image;
+
+    /**
+     * X position of the Region in the Image in pixels
+     */
+    private final int x;
+
+    /**
+     * Y position of the Region in the Image in pixels
+     */
+    private final int y;
+
+    /**
+     * Width of the Region in pixels
+     */
+    private final int width;
+
+    /**
+     * Height of the Region in pixels
+     */
+    private final int height;
+
+    /**
+     * Largest fully opaque rectangle in the Region, stored as x, y, width, and height relative to the Region, or null
+     * if not yet found
+     */
+    private int[] opaque;
+
+    /**
+     * Color of every pixel of the Region if it is a solid color Region, or null if not
+     */
+    private final Color color;
+
+    /**
+     * Create a new Region covering an entire Image
+     *
+     * @param image Image to cover
+     */
+    public Region(Image image) {
+        this(image, 0, 0, (int) image.getWidth(), (int) image.getHeight());
+    }
+
+    /**
+     * Create a new Region covering part of an Image
+     *
+     * @param image  Image the Region is located in
+     * @param x      X position of the Region in pixels
+     * @param y      Y position of the Region in pixels
+     * @param width  Width of the Region in pixels
+     * @param height Height of the Region in pixels
+     */
+    public Region(Image image, int x, int y, int width, int height) {
+        this.image = image;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        color = null;
+    }
+
+    /**
+     * Create a new single-pixel Region of a solid Color
+     *
+     * @param color Color of the Region
+     */
+    private Region(Color color) {
+        WritableImage image = new WritableImage(1, 1);
+        image.getPixelWriter().setColor(0, 0, color);
+        this.image = image;
+        x = 0;
+        y = 0;
+        width = 1;
+        height = 1;
+        this.color = color;
+    }
+
+    /**
+     * Get the shared single-pixel Region of a solid Color, creating it the first time the Color is used
+     * <br>
+     * Every Sprite of the same Color shares one Image, so RenderTargets can batch them and fill them as rectangles.
+     * Once too many Colors are interned, such as from animating a Color, every interned Region is cleared, and
+     * Sprites keep the Regions they already have.
+     *
+     * @param color Color of the Region
+     * @return Interned Region of the Color
+     */
+    public static Region of(Color color) {
+        Region region = COLORS.get(color);
+        if (region != null) return region;
+        if (COLORS.size() >= MAX_COLORS) COLORS.clear();
+        return COLORS.computeIfAbsent(color, Region::new);
+    }
+
+    /**
+     * Clear every interned solid Color Region, so later Sprites of those Colors get new Regions
+     */
+    public static void clearColors() {
+        COLORS.clear();
+    }
+
+    /**
+     * Get the Color of a solid color Region
+     *
+     * @return Color of every pixel, or null if the Region is not a solid color Region
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    /**
+     * Get the Image the Region is located in
+     *
+     * @return Image of the Region
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Get the x position of the Region in the Image
+     *
+     * @return X position in pixels
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the y position of the Region in the Image
+     *
+     * @return Y position in pixels
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get the width of the Region
+     *
+     * @return Width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the Region
+     *
+     * @return Height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the largest fully opaque rectangle in the Region, finding it from the Image pixels the first time
+     * <br>
+     * If the Image has not finished loading, no rectangle is returned or stored
+     *
+     * @return Rectangle stored as x, y, width, and height relative to the Region, or null if not loaded
+     */
+    int[] getOpaqueBounds() {
+        if (opaque == null) {
+            if (image.getProgress() < 1 || image.isError() || image.getPixelReader() == null) return null;
+            int[] pixels = new int[width * height];
+            image.getPixelReader().getPixels(x, y, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+            opaque = findOpaqueBounds(pixels);
+        }
+        return opaque;
+    }
+
+    /**
+     * Find the largest rectangle of fully opaque pixels, by treating each row as a histogram of opaque column heights
+     *
+     * @param pixels ARGB pixels of the Region
+     * @return Rectangle stored as x, y, width, and height, which is empty if no pixel is opaque
+     */
+    private int[] findOpaqueBounds(int[] pixels) {
+        int[] bounds = new int[4];
+        int[] heights = new int[width + 1];
+        int[] stack = new int[width + 1];
+        int best = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                heights[col] = (pixels[row * width + col] >>> 24) == 255 ? heights[col] + 1 : 0;
+            }
+            int top = 0;
+            for (int col = 0; col <= width; col++) {
+                while (top > 0 && heights[stack[top - 1]] >= heights[col]) {
+                    int columnHeight = heights[stack[--top]];
+                    int left = top > 0 ? stack[top - 1] + 1 : 0;
+                    int area = columnHeight * (col - left);
+                    if (area > best) {
+                        best = area;
+                        bounds[0] = left;
+                        bounds[1] = row - columnHeight + 1;
+                        bounds[2] = col - left;
+                        bounds[3] = columnHeight;
+                    }
+                }
+                stack[top++] = col;
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Check if a Region covers the same area of the same Image as this Region
+     *
+     * @param o Region to check
+     * @return True if the Regions are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Region region = (Region) o;
+        return x == region.x &&
+                y == region.y &&
+                width == region.width &&
+                height == region.height &&
+                Objects.equals(image, region.image);
+    }
+
+    /**
+     * Get the hash code of the Region, written out so cache lookups keyed by Region do not allocate
+     *
+     * @return Hash code
+     */
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(image);
+        hash = 31 * hash + x;
+        hash = 31 * hash + y;
+        hash = 31 * hash + width;
+        return 31 * hash + height;
+    }
+}
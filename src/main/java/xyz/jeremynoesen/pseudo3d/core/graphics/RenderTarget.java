@@ -0,0 +1,99 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+/**
+ * Surface a Renderer draws projected Sprites to
+ * <br>
+ * Draws are placed in a view that may be rotated around a pivot point, and each draw may be rotated around its own
+ * center on top of that
+ *
+ * @author Jeremy Noesen
+ */
+public interface RenderTarget {
+
+    /**
+     * Get the width of the target
+     *
+     * @return Width in pixels
+     */
+    float getWidth();
+
+    /**
+     * Get the height of the target
+     *
+     * @return Height in pixels
+     */
+    float getHeight();
+
+    /**
+     * Prepare the target for drawing a new frame
+     */
+    void begin();
+
+    /**
+     * Clear the whole target to transparent
+     */
+    void clear();
+
+    /**
+     * Limit drawing to a set of non-overlapping rectangles and clear them, until unclipped
+     *
+     * @param rects Rectangles stored as min x, min y, max x, and max y
+     * @param count Number of rectangles
+     */
+    void clip(float[] rects, int count);
+
+    /**
+     * Stop limiting drawing to the rectangles set by the previous clip
+     */
+    void unclip();
+
+    /**
+     * Set the rotation of the view that following draws are placed in
+     *
+     * @param rotation Counter-clock-wise rotation of the view in degrees
+     * @param pivotX   X position of the point the view rotates around
+     * @param pivotY   Y position of the point the view rotates around
+     */
+    void setView(float rotation, float pivotX, float pivotY);
+
+    /**
+     * Draw a Region of an Image
+     *
+     * @param region   Region to draw
+     * @param x        X position of the center of the draw in the view
+     * @param y        Y position of the center of the draw in the view
+     * @param width    Width to draw the Region at in pixels
+     * @param height   Height to draw the Region at in pixels
+     * @param rotation Counter-clock-wise rotation of the draw around its center in degrees
+     */
+    void draw(Region region, float x, float y, float width, float height, float rotation);
+
+    /**
+     * Draw a Region of an Image many times without rotation
+     *
+     * @param region Region to draw
+     * @param rects  Draws stored as center x, center y, width, and height in the view
+     * @param count  Number of draws
+     */
+    default void draw(Region region, float[] rects, int count) {
+        for (int i = 0; i < count * 4; i += 4) draw(region, rects[i], rects[i + 1], rects[i + 2], rects[i + 3], 0);
+    }
+
+    /**
+     * Draw a Region whose pixels change every frame, such as a rasterized frame, over the whole target without
+     * rotation
+     *
+     * @param region Region to draw
+     * @param width  Width to draw the Region at in pixels
+     * @param height Height to draw the Region at in pixels
+     */
+    default void present(Region region, float width, float height) {
+        setView(0, 0, 0);
+        draw(region, width / 2.0f, height / 2.0f, width, height, 0);
+    }
+
+    /**
+     * Finish drawing the current frame
+     */
+    void end();
+}
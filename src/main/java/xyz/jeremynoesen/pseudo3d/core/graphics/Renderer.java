@@ -1,29 +1,33 @@
 package xyz.jeremynoesen.pseudo3d.core.graphics;
 
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.transform.Affine;
 import xyz.jeremynoesen.pseudo3d.core.Scene;
 import xyz.jeremynoesen.pseudo3d.core.object.Entity;
-import xyz.jeremynoesen.pseudo3d.core.util.Box;
 import xyz.jeremynoesen.pseudo3d.core.util.Vector;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.WeakHashMap;
 
 /**
- * Scene renderer which will render a Scene onto a JavaFX Canvas
+ * Scene renderer which will render a Scene onto a RenderTarget, such as a JavaFX Canvas
  *
  * @author Jeremy Noesen
  */
 public class Renderer {
 
     /**
-     * Comparator used to sort Scene Entities from lowest to highest z position for draw order
+     * All render Layers in draw order
      */
-    private final Comparator<Entity> zComparator = (o1, o2) -> {
-        float diff = o1.getPosition().getZ() - o2.getPosition().getZ();
-        return Math.round(diff / (Float.compare(diff, 0) == 0 ? 1 : Math.abs(diff)));
-    };
+    private static final Layer[] LAYERS = Layer.values();
+
+    /**
+     * Width and height of each occlusion grid cell in pixels
+     */
+    private static final int OCCLUSION_CELL = 16;
 
     /**
      * Scene being rendered by this Renderer
@@ -31,25 +35,311 @@ public class Renderer {
     private final Scene scene;
 
     /**
-     * Reference to the Scene's Camera
+     * Snapshot of the Scene being drawn this frame
+     */
+    private Snapshot snapshot;
+
+    /**
+     * Whether the Snapshot being drawn was published by the Scene, and must be passed back instead of modifying the
+     * Scene directly
+     */
+    private boolean buffered;
+
+    /**
+     * Snapshot captured from the Scene each frame when it does not publish its own
+     */
+    private final Snapshot liveSnapshot;
+
+    /**
+     * Reference to the Snapshot's Camera
      */
     private Camera camera;
 
     /**
-     * Position on the Canvas to render from
+     * How much wider the Camera's view gets per unit of distance in front of it, used for perspective scaling
+     */
+    private float spread;
+
+    /**
+     * Position on the RenderTarget to render from
      */
     private Vector renderPos;
 
     /**
-     * JavaFX Canvas GraphicsContext to render to
+     * RenderTarget currently being drawn to
+     */
+    private RenderTarget target;
+
+    /**
+     * RenderTargets to render each Layer to, which may all be the same RenderTarget
+     */
+    private final RenderTarget[] layerTargets;
+
+    /**
+     * RenderTargets each Layer was rendered to in the previous frame
+     */
+    private final RenderTarget[] lastLayerTargets;
+
+    /**
+     * RenderTargets each Layer is shown on when rendering offscreen first
+     */
+    private final RenderTarget[] outputTargets;
+
+    /**
+     * Index of the group each Layer is drawn in, where consecutive Layers sharing a RenderTarget share a group
+     */
+    private final int[] groupOf;
+
+    /**
+     * Number of separate RenderTarget groups in the current frame
+     */
+    private int groupCount;
+
+    /**
+     * CanvasTargets wrapping GraphicsContexts passed to this Renderer
+     */
+    private final WeakHashMap<GraphicsContext, CanvasTarget> canvasTargets;
+
+    /**
+     * Width of the RenderTarget being rendered to
+     */
+    private float width;
+
+    /**
+     * Height of the RenderTarget being rendered to
+     */
+    private float height;
+
+    /**
+     * X position of the left edge of the view being projected onto
+     */
+    private float viewX;
+
+    /**
+     * Y position of the top edge of the view being projected onto
+     */
+    private float viewY;
+
+    /**
+     * Width of the view being projected onto
+     */
+    private float viewWidth;
+
+    /**
+     * Height of the view being projected onto
+     */
+    private float viewHeight;
+
+    /**
+     * Rectangle of the Viewport being drawn, stored as min x, min y, max x, and max y
+     */
+    private final float[] viewportRect;
+
+    /**
+     * Particle draws of the ParticleSystem being drawn, stored as center x, center y, width, and height
+     */
+    private float[] particleRects;
+
+    /**
+     * Number of particles of each ParticleSystem already drawn on the Layer being drawn
+     */
+    private int[] particlesDrawn;
+
+    /**
+     * Whether each Layer had particles drawn on it in the previous frame
+     */
+    private final boolean[] lastParticleLayers;
+
+    /**
+     * Reused Projections of Entities in Viewports
      */
-    private GraphicsContext graphicsContext;
+    private final ArrayList<Projection> viewportProjections;
 
     /**
      * Time elapsed in the previous render frame
      */
     private float deltaTime;
 
+    /**
+     * Cache of pre-scaled Sprite images used when drawing to GraphicsContexts, or null to always scale while drawing
+     */
+    private ScaleCache scaleCache;
+
+    /**
+     * Cache of pre-rotated Sprite images, or null to rotate Sprites while drawing
+     */
+    private RotationCache rotationCache;
+
+    /**
+     * Whether to only redraw the areas of the RenderTarget that changed since the previous frame
+     */
+    private boolean dirtyRegions;
+
+    /**
+     * Whether to skip drawing Sprites hidden behind occluding Sprites
+     */
+    private boolean occlusionCulling;
+
+    /**
+     * Cells of the screen fully covered by occluding Sprites drawn after the Sprites being checked
+     */
+    private boolean[] occupancy;
+
+    /**
+     * Number of occlusion grid columns
+     */
+    private int cellsX;
+
+    /**
+     * Number of occlusion grid rows
+     */
+    private int cellsY;
+
+    /**
+     * Offscreen target rasterizing every Layer before it is shown, or null to draw to the RenderTargets directly
+     */
+    private ImageTarget rasterTarget;
+
+    /**
+     * Region covering the image of the offscreen target
+     */
+    private Region rasterRegion;
+
+    /**
+     * Offscreen target created for adaptive resolution when no Rasterizer was set
+     */
+    private ImageTarget adaptiveTarget;
+
+    /**
+     * Width of the RenderTargets the offscreen frame is shown on
+     */
+    private float outputWidth;
+
+    /**
+     * Height of the RenderTargets the offscreen frame is shown on
+     */
+    private float outputHeight;
+
+    /**
+     * Scale of the offscreen frame resolution relative to the output RenderTargets
+     */
+    private float resolution;
+
+    /**
+     * Render time in milliseconds to stay under by lowering the resolution, or 0 to disable adaptive resolution
+     */
+    private float targetFrameTime;
+
+    /**
+     * Lowest resolution scale adaptive resolution can lower to
+     */
+    private float minResolution;
+
+    /**
+     * Amount the resolution scale changes by in each adaptive resolution step
+     */
+    private float resolutionStep;
+
+    /**
+     * Smoothed render time in milliseconds
+     */
+    private float averageFrameTime;
+
+    /**
+     * Number of frames in a row rendered well under the target render time
+     */
+    private int headroomFrames;
+
+    /**
+     * Clock advancing Sprite animations once per frame
+     */
+    private AnimationClock animationClock;
+
+    /**
+     * Clock owned by this Renderer, which it advances after every frame
+     */
+    private final AnimationClock ownClock;
+
+    /**
+     * Camera distance in grid units beyond which Sprite animations update at the reduced rate
+     */
+    private float lodDistance;
+
+    /**
+     * Size in pixels below which Sprite animations update at the reduced rate
+     */
+    private float lodSize;
+
+    /**
+     * Time in seconds between Sprite animation updates for distant or small Entities
+     */
+    private float lodInterval;
+
+    /**
+     * Time in seconds between Sprite animation updates for off-screen Entities allowed to update off-screen
+     */
+    private float offScreenInterval;
+
+    /**
+     * Projections of all Scene Entities in draw order for the current frame
+     */
+    private final ArrayList<Projection> projections;
+
+    /**
+     * Projections of Entities, kept between frames to track changes
+     */
+    private final IdentityHashMap<Entity, Projection> projectionMap;
+
+    /**
+     * Number of the current render frame
+     */
+    private long frame;
+
+    /**
+     * Areas of each group to redraw
+     */
+    private final DirtyArea[] dirty;
+
+    /**
+     * Whether anything drawn to each group changed this frame
+     */
+    private final boolean[] changed;
+
+    /**
+     * Whether each group must be fully redrawn this frame
+     */
+    private final boolean[] full;
+
+    /**
+     * Copy of the Camera from the previous frame
+     */
+    private Camera lastCamera;
+
+    /**
+     * Grid scale of the previous frame
+     */
+    private Vector lastGridScale;
+
+    /**
+     * RenderTarget width of the previous frame
+     */
+    private float lastWidth;
+
+    /**
+     * RenderTarget height of the previous frame
+     */
+    private float lastHeight;
+
+    /**
+     * Background Sprite of the previous frame
+     */
+    private Sprite lastBackground;
+
+    /**
+     * Background Sprite Region of the previous frame
+     */
+    private Region lastBackgroundRegion;
+
     /**
      * Create a new Renderer for the specified Scene
      *
@@ -57,6 +347,41 @@ public class Renderer {
      */
     public Renderer(Scene scene) {
         this.scene = scene;
+        liveSnapshot = new Snapshot();
+        ownClock = new AnimationClock();
+        animationClock = ownClock;
+        resolution = 1;
+        targetFrameTime = 0;
+        minResolution = 0.25f;
+        resolutionStep = 0.125f;
+        averageFrameTime = 0;
+        headroomFrames = 0;
+        lodDistance = Float.POSITIVE_INFINITY;
+        lodSize = 0;
+        lodInterval = 0.1f;
+        offScreenInterval = 0.25f;
+        scaleCache = new ScaleCache();
+        rotationCache = null;
+        dirtyRegions = false;
+        occlusionCulling = false;
+        occupancy = new boolean[0];
+        projections = new ArrayList<>();
+        viewportRect = new float[4];
+        particleRects = new float[0];
+        particlesDrawn = new int[0];
+        lastParticleLayers = new boolean[LAYERS.length];
+        viewportProjections = new ArrayList<>();
+        projectionMap = new IdentityHashMap<>();
+        frame = 0;
+        layerTargets = new RenderTarget[LAYERS.length];
+        lastLayerTargets = new RenderTarget[LAYERS.length];
+        outputTargets = new RenderTarget[LAYERS.length];
+        groupOf = new int[LAYERS.length];
+        canvasTargets = new WeakHashMap<>();
+        dirty = new DirtyArea[LAYERS.length];
+        for (int i = 0; i < LAYERS.length; i++) dirty[i] = new DirtyArea();
+        changed = new boolean[LAYERS.length];
+        full = new boolean[LAYERS.length];
     }
 
     /**
@@ -66,128 +391,1056 @@ public class Renderer {
      * @param deltaTime       Time elapsed in last frame, used for Sprite updating
      */
     public void render(GraphicsContext graphicsContext, float deltaTime) {
-        this.graphicsContext = graphicsContext;
+        render(canvasTarget(graphicsContext), deltaTime);
+    }
+
+    /**
+     * Render the next full frame with each Layer on its own stacked Canvas
+     * <br>
+     * The Canvases must all be the same size, and are cleared before being redrawn. The background and static Layers
+     * are only redrawn when the Camera or their contents change.
+     *
+     * @param layers    GraphicsContexts to draw each Layer to, in Layer order
+     * @param deltaTime Time elapsed in last frame, used for Sprite updating
+     */
+    public void render(GraphicsContext[] layers, float deltaTime) {
+        if (layers.length != LAYERS.length)
+            throw new IllegalArgumentException("A GraphicsContext is needed for each Layer");
+        for (int i = 0; i < LAYERS.length; i++) layerTargets[i] = canvasTarget(layers[i]);
+        render(deltaTime);
+    }
+
+    /**
+     * Render the next full frame to a RenderTarget
+     *
+     * @param target    RenderTarget to draw to
+     * @param deltaTime Time elapsed in last frame, used for Sprite updating
+     */
+    public void render(RenderTarget target, float deltaTime) {
+        Arrays.fill(layerTargets, target);
+        render(deltaTime);
+    }
+
+    /**
+     * Render the next full frame with each Layer on its own RenderTarget
+     * <br>
+     * The RenderTargets must all be the same size, and are cleared before being redrawn. The background and static
+     * Layers are only redrawn when the Camera or their contents change.
+     *
+     * @param layers    RenderTargets to draw each Layer to, in Layer order
+     * @param deltaTime Time elapsed in last frame, used for Sprite updating
+     */
+    public void render(RenderTarget[] layers, float deltaTime) {
+        if (layers.length != LAYERS.length)
+            throw new IllegalArgumentException("A RenderTarget is needed for each Layer");
+        System.arraycopy(layers, 0, layerTargets, 0, LAYERS.length);
+        render(deltaTime);
+    }
+
+    /**
+     * Get the CanvasTarget wrapping a GraphicsContext, creating it if needed
+     *
+     * @param graphicsContext GraphicsContext to wrap
+     * @return CanvasTarget drawing to the GraphicsContext
+     */
+    private CanvasTarget canvasTarget(GraphicsContext graphicsContext) {
+        CanvasTarget canvasTarget = canvasTargets.get(graphicsContext);
+        if (canvasTarget == null) {
+            canvasTarget = new CanvasTarget(graphicsContext, scaleCache);
+            canvasTargets.put(graphicsContext, canvasTarget);
+        }
+        return canvasTarget;
+    }
+
+    /**
+     * Render the next frame to the current RenderTargets
+     *
+     * @param deltaTime Time elapsed in last frame, used for Sprite updating
+     */
+    private void render(float deltaTime) {
+        long start = System.nanoTime();
         this.deltaTime = deltaTime;
+        if (scaleCache != null) scaleCache.nextFrame();
+        if (rasterTarget != null) {
+            System.arraycopy(layerTargets, 0, outputTargets, 0, LAYERS.length);
+            outputWidth = layerTargets[0].getWidth();
+            outputHeight = layerTargets[0].getHeight();
+            rasterTarget.resize((int) Math.ceil(outputWidth * resolution), (int) Math.ceil(outputHeight * resolution));
+            Arrays.fill(layerTargets, rasterTarget);
+        }
+
         init();
-        drawBackground();
-        for (Entity entity : scene.getEntities()) drawEntity(entity);
+        if (snapshot.viewportCount > 0) {
+            drawViewports();
+        } else {
+            boolean redrawAll = viewChanged();
+            project();
+            markParticles();
+            if (occlusionCulling) occlude();
+            for (int group = 0; group < groupCount; group++) drawGroup(group, redrawAll);
+        }
+        for (int i = 0; i < LAYERS.length; i++) if (i == 0 || groupOf[i] != groupOf[i - 1]) layerTargets[i].end();
+        if (rasterTarget != null) present();
+        animate();
+        if (targetFrameTime > 0) adapt((System.nanoTime() - start) / 1000000.0f);
     }
 
     /**
-     * Initialize the render and sort the Scene Entities before starting with the render
+     * Step the resolution scale down when the smoothed render time is over the target, or back up after it has stayed
+     * well under the target for a while
+     *
+     * @param frameTime Time the latest render took in milliseconds
+     */
+    private void adapt(float frameTime) {
+        averageFrameTime = averageFrameTime == 0 ? frameTime : averageFrameTime * 0.9f + frameTime * 0.1f;
+        if (averageFrameTime > targetFrameTime && resolution > minResolution) {
+            resolution = Math.max(minResolution, resolution - resolutionStep);
+            averageFrameTime = 0;
+            headroomFrames = 0;
+        } else if (averageFrameTime < targetFrameTime * 0.75f && resolution < 1) {
+            if (++headroomFrames >= 60) {
+                resolution = Math.min(1, resolution + resolutionStep);
+                averageFrameTime = 0;
+                headroomFrames = 0;
+            }
+        } else {
+            headroomFrames = 0;
+        }
+    }
+
+    /**
+     * Initialize the render and get the Snapshot of the Scene to draw
+     * <br>
+     * If the Scene publishes Snapshots, the latest published one is drawn, otherwise the Scene is captured now
      */
     private void init() {
-        scene.getEntities().sort(zComparator);
-        graphicsContext.setImageSmoothing(false);
-        camera = scene.getCamera();
-        renderPos = new Vector((float) graphicsContext.getCanvas().getWidth() / 2.0f + camera.getOffset().getX(),
-                (float) graphicsContext.getCanvas().getHeight() / 2.0f + camera.getOffset().getY());
+        SnapshotBuffer snapshots = scene.getSnapshotBuffer();
+        buffered = snapshots != null;
+        snapshot = snapshots != null ? snapshots.read() : liveSnapshot.capture(scene);
+        groupCount = 0;
+        for (int i = 0; i < LAYERS.length; i++) {
+            if (i > 0 && layerTargets[i] == layerTargets[i - 1]) {
+                groupOf[i] = groupOf[i - 1];
+            } else {
+                groupOf[i] = groupCount++;
+                layerTargets[i].begin();
+            }
+        }
+        for (int group = 0; group < groupCount; group++) {
+            dirty[group].reset();
+            changed[group] = false;
+            full[group] = false;
+        }
+        width = layerTargets[0].getWidth();
+        height = layerTargets[0].getHeight();
+        useCamera(snapshot.camera);
+        renderPos = new Vector(width / 2.0f + camera.getOffset().getX() * resolution(),
+                height / 2.0f + camera.getOffset().getY() * resolution());
+        viewX = 0;
+        viewY = 0;
+        viewWidth = width;
+        viewHeight = height;
+        frame++;
     }
 
     /**
-     * Draw the background Sprite
+     * Project all Scene Entities onto the RenderTarget and mark whether they are on-screen
      */
-    private void drawBackground() {
-        if (scene.getBackground() != null) {
-            Sprite background = scene.getBackground();
-            Affine original = graphicsContext.getTransform();
+    private void project() {
+        projections.clear();
+        for (int i = 0; i < snapshot.count; i++) {
+            Entity entity = snapshot.entities[i];
+            Projection projection = projectionMap.get(entity);
+            if (projection == null) {
+                projection = new Projection(entity);
+                projectionMap.put(entity, projection);
+            }
+            projection.advance(frame);
+            projection.index = i;
+            projection.layer = snapshot.layers[i];
+            projection.sprite = snapshot.sprites[i];
+            projectEntity(projection, i);
+            snapshot.onScreen[i] = projection.onScreen;
+            projections.add(projection);
+            if (projection.changed()) {
+                if (projection.prevOnScreen) {
+                    int group = groupOf[projection.prevLayer.ordinal()];
+                    changed[group] = true;
+                    dirty[group].add(projection.prevMinX, projection.prevMinY,
+                            projection.prevMaxX, projection.prevMaxY);
+                }
+                if (projection.onScreen) {
+                    int group = groupOf[projection.layer.ordinal()];
+                    changed[group] = true;
+                    dirty[group].add(projection.minX, projection.minY, projection.maxX, projection.maxY);
+                }
+            }
+        }
 
-            if (Float.compare(camera.getRotation(), 0) != 0 || Float.compare(background.getRotation(), 0) != 0) {
-                Affine transform = new Affine();
-                transform.appendRotation(-camera.getRotation() - background.getRotation(),
-                        renderPos.getX(), renderPos.getY());
-                graphicsContext.setTransform(transform);
+        Iterator<Projection> iterator = projectionMap.values().iterator();
+        while (iterator.hasNext()) {
+            Projection projection = iterator.next();
+            if (projection.frame != frame) {
+                if (projection.onScreen) {
+                    int group = groupOf[projection.layer.ordinal()];
+                    changed[group] = true;
+                    dirty[group].add(projection.minX, projection.minY, projection.maxX, projection.maxY);
+                }
+                iterator.remove();
             }
+        }
+    }
 
-            float drawWidth = background.getWidth() * scene.getGridScale().getX() * camera.getZoom();
-            float drawHeight = background.getHeight() * scene.getGridScale().getY() * camera.getZoom();
-            graphicsContext.drawImage(scene.getBackground().getImage(),
-                    (renderPos.getX() - (drawWidth) / 2), (renderPos.getY() - (drawHeight) / 2), drawWidth, drawHeight);
-            graphicsContext.setTransform(original);
-            scene.getBackground().update(deltaTime);
+    /**
+     * Mark every group with particles in this or the previous frame to be fully redrawn, since particles move in bulk
+     * and are not tracked individually
+     */
+    private void markParticles() {
+        for (int i = 0; i < LAYERS.length; i++) {
+            if (lastParticleLayers[i]) full[groupOf[i]] = true;
+            lastParticleLayers[i] = false;
+        }
+        for (int i = 0; i < snapshot.particleSystemCount; i++) {
+            int layer = snapshot.particleLayers[i].ordinal();
+            full[groupOf[layer]] = true;
+            lastParticleLayers[layer] = true;
         }
     }
 
     /**
-     * Draw an Entity to the Canvas
-     *
-     * @param entity Entity to draw to the Canvas
+     * Project and draw every Viewport of the Snapshot, fully redrawing every RenderTarget
+     * <br>
+     * Entities were sorted once when the Snapshot was captured, and each Viewport only projects the Entities within
+     * the view distance of its Camera, found with a binary search of the sorted depths
      */
-    private void drawEntity(Entity entity) {
-        Vector objPos = entity.getPosition().multiply(scene.getGridScale());
-        Vector camPos = camera.getPosition().multiply(scene.getGridScale());
-        float camDist = camPos.getZ() - objPos.getZ();
+    private void drawViewports() {
+        projectionMap.clear();
+        projections.clear();
+        lastCamera = null;
+        Arrays.fill(snapshot.onScreen, 0, snapshot.count, false);
+        for (int group = 0; group < groupCount; group++) groupTarget(group).clear();
 
-        if (!entity.isEnabled() || !entity.isVisible() || entity.getSprite() == null ||
-                Float.compare(camDist, camera.getViewDistance() * scene.getGridScale().getZ()) >= 0) {
-            entity.setOnScreen(false);
-            return;
+        int used = 0;
+        for (int v = 0; v < snapshot.viewportCount; v++) {
+            useCamera(snapshot.viewportCameras[v]);
+            viewX = snapshot.viewportBounds[v * 4] * width;
+            viewY = snapshot.viewportBounds[v * 4 + 1] * height;
+            viewWidth = snapshot.viewportBounds[v * 4 + 2] * width;
+            viewHeight = snapshot.viewportBounds[v * 4 + 3] * height;
+            renderPos = new Vector(viewX + viewWidth / 2.0f + camera.getOffset().getX() * resolution(),
+                    viewY + viewHeight / 2.0f + camera.getOffset().getY() * resolution());
+
+            int from = projections.size();
+            int first = snapshot.firstAbove(camera.getPosition().getZ() - camera.getViewDistance());
+            for (int i = first; i < snapshot.count; i++) {
+                if (used == viewportProjections.size()) viewportProjections.add(new Projection(null));
+                Projection projection = viewportProjections.get(used);
+                projection.entity = snapshot.entities[i];
+                projection.advance(frame);
+                projection.index = i;
+                projection.layer = snapshot.layers[i];
+                projection.sprite = snapshot.sprites[i];
+                projectEntity(projection, i);
+                if (!projection.projected) continue;
+                if (projection.onScreen) snapshot.onScreen[i] = true;
+                projections.add(projection);
+                used++;
+            }
+
+            viewportRect[0] = viewX;
+            viewportRect[1] = viewY;
+            viewportRect[2] = viewX + viewWidth;
+            viewportRect[3] = viewY + viewHeight;
+            for (int group = 0; group < groupCount; group++) {
+                target = groupTarget(group);
+                target.clip(viewportRect, 1);
+                target.setView(camera.getRotation(), renderPos.getX(), renderPos.getY());
+                drawLayers(group, null, from, projections.size(), snapshot.viewportBackgrounds[v]);
+                target.unclip();
+            }
         }
+    }
 
-        float scale;
-        try {
-            double fovRad = Math.toRadians(camera.getFieldOfView());
-            scale = (float) (camera.getZoom() * (camera.getSensorSize() / (camera.getSensorSize() + (2.0 *
-                    camDist * (Math.sin(fovRad / 2.0f) / Math.sin((Math.PI / 2.0) - (fovRad / 2.0f)))))));
-        } catch (ArithmeticException e) {
-            return;
+    /**
+     * Mark on-screen Sprites that are completely hidden behind occluding Sprites so they are not drawn
+     * <br>
+     * Sprites are checked front-to-back in reverse draw order against a coarse grid of screen cells. Each visible
+     * occluding Sprite then fills the cells fully inside its opaque rectangle. Occlusion does not cross between
+     * RenderTargets, so cached Layers do not depend on Sprites drawn to other RenderTargets. Rotated Sprites can be
+     * hidden, but do not hide others.
+     */
+    private void occlude() {
+        cellsX = (int) Math.ceil(width / OCCLUSION_CELL);
+        cellsY = (int) Math.ceil(height / OCCLUSION_CELL);
+        if (occupancy.length < cellsX * cellsY) occupancy = new boolean[cellsX * cellsY];
+        boolean rotated = Float.compare(camera.getRotation(), 0) != 0;
+
+        for (int i = LAYERS.length - 1; i >= 0; i--) {
+            if (i == LAYERS.length - 1 || groupOf[i] != groupOf[i + 1]) Arrays.fill(occupancy, false);
+            for (int j = projections.size() - 1; j >= 0; j--) {
+                Projection projection = projections.get(j);
+                if (!projection.onScreen || projection.layer != LAYERS[i]) continue;
+                projection.occluded = covered(projection);
+                if (!projection.occluded && !rotated && Float.compare(projection.rotation, 0) == 0 &&
+                        snapshot.occluding[projection.index]) fill(projection);
+            }
         }
+    }
 
-        if (Float.compare(scale, 0) <= 0) {
-            entity.setOnScreen(false);
-            return;
+    /**
+     * Check if every on-screen occlusion grid cell touched by a Projection's screen bounds is filled
+     *
+     * @param projection Projection to check
+     * @return True if the Projection is hidden
+     */
+    private boolean covered(Projection projection) {
+        int minX = Math.max(0, (int) Math.floor(projection.minX / OCCLUSION_CELL));
+        int minY = Math.max(0, (int) Math.floor(projection.minY / OCCLUSION_CELL));
+        int maxX = Math.min(cellsX - 1, (int) Math.floor(projection.maxX / OCCLUSION_CELL));
+        int maxY = Math.min(cellsY - 1, (int) Math.floor(projection.maxY / OCCLUSION_CELL));
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (!occupancy[y * cellsX + x]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill the occlusion grid cells fully inside the opaque rectangle of an unrotated Projection
+     *
+     * @param projection Projection to fill with
+     */
+    private void fill(Projection projection) {
+        Region region = projection.region;
+        int[] opaque = region.getOpaqueBounds();
+        if (opaque == null || opaque[2] == 0 || opaque[3] == 0) return;
+
+        float scaleX = (float) projection.width / region.getWidth();
+        float scaleY = (float) projection.height / region.getHeight();
+        float left = projection.x - (projection.width / 2.0f);
+        float top = projection.y - (projection.height / 2.0f);
+        int minX = Math.max(0, (int) Math.ceil((left + opaque[0] * scaleX) / OCCLUSION_CELL));
+        int minY = Math.max(0, (int) Math.ceil((top + opaque[1] * scaleY) / OCCLUSION_CELL));
+        int maxX = Math.min(cellsX, (int) Math.floor((left + (opaque[0] + opaque[2]) * scaleX) / OCCLUSION_CELL));
+        int maxY = Math.min(cellsY, (int) Math.floor((top + (opaque[1] + opaque[3]) * scaleY) / OCCLUSION_CELL));
+        for (int y = minY; y < maxY; y++) {
+            for (int x = minX; x < maxX; x++) {
+                occupancy[y * cellsX + x] = true;
+            }
         }
+    }
+
+    /**
+     * Calculate where an Entity's Sprite will be drawn on the RenderTarget
+     *
+     * @param projection Projection of the Entity to calculate
+     * @param index      Index of the Entity in the Snapshot
+     */
+    private void projectEntity(Projection projection, int index) {
+        Vector gridScale = snapshot.gridScale;
+        Vector objPos = snapshot.positions[index].multiply(gridScale);
+        Vector camPos = camera.getPosition().multiply(gridScale);
+        float camDist = camPos.getZ() - objPos.getZ();
 
-        Sprite sprite = entity.getSprite();
-        short gWidth = (short) graphicsContext.getCanvas().getWidth();
-        short gHeight = (short) graphicsContext.getCanvas().getHeight();
+        if (projection.sprite == null ||
+                Float.compare(camDist, camera.getViewDistance() * gridScale.getZ()) >= 0) return;
 
-        int widthScaled = (int) Math.ceil(sprite.getWidth() * scene.getGridScale().getX() * scale);
-        int heightScaled = (int) Math.ceil(sprite.getHeight() * scene.getGridScale().getY() * scale);
-        float x = ((objPos.getX() - camPos.getX()) * scale) + renderPos.getX();
-        float y = gHeight - (((objPos.getY() - camPos.getY()) * scale) + (gHeight - renderPos.getY()));
+        float scale = scale(camDist);
+        if (Float.compare(scale, 0) <= 0) return;
 
-        Box screenBox = new Box(gWidth, gHeight, new Vector(gWidth / 2.0f, gHeight / 2.0f));
-        Box spriteBox;
-        Affine original = graphicsContext.getTransform();
-        Affine transform = new Affine();
+        float spriteRotation = snapshot.rotations[index];
+        Region region = snapshot.regions[index];
 
-        if (Float.compare(camera.getRotation(), 0) != 0 || Float.compare(sprite.getRotation(), 0) != 0) {
-            float spriteRotation = -sprite.getRotation();
-            float cameraRotation = -camera.getRotation();
-            transform.appendRotation(cameraRotation, renderPos.getX(), renderPos.getY());
-            transform.appendRotation(spriteRotation, x, y);
+        int widthScaled = (int) Math.ceil(snapshot.sizes[index * 2] * gridScale.getX() * scale);
+        int heightScaled = (int) Math.ceil(snapshot.sizes[index * 2 + 1] * gridScale.getY() * scale);
+        if (rotationCache != null && Float.compare(spriteRotation, 0) != 0) {
+            Region rotated = rotationCache.get(region, spriteRotation);
+            if (rotated != null) {
+                widthScaled = (int) Math.ceil((float) widthScaled * rotated.getWidth() / region.getWidth());
+                heightScaled = (int) Math.ceil((float) heightScaled * rotated.getHeight() / region.getHeight());
+                region = rotated;
+                spriteRotation = 0;
+            }
+        }
+        float x = projectX(objPos.getX() - camPos.getX(), scale);
+        float y = projectY(objPos.getY() - camPos.getY(), scale);
+        float widthRotated = widthScaled;
+        float heightRotated = heightScaled;
+        float xRotated = x;
+        float yRotated = y;
 
-            spriteRotation = (float) Math.toRadians(spriteRotation);
-            cameraRotation = (float) Math.toRadians(cameraRotation);
-            float sprRotSin = (float) Math.sin(spriteRotation + cameraRotation);
-            float sprRotCos = (float) Math.cos(spriteRotation + cameraRotation);
+        if (Float.compare(camera.getRotation(), 0) != 0 || Float.compare(spriteRotation, 0) != 0) {
+            float spriteRadians = (float) Math.toRadians(-spriteRotation);
+            float cameraRotation = (float) Math.toRadians(-camera.getRotation());
+            float sprRotSin = (float) Math.sin(spriteRadians + cameraRotation);
+            float sprRotCos = (float) Math.cos(spriteRadians + cameraRotation);
             float camRotSin = (float) Math.sin(cameraRotation);
             float camRotCos = (float) Math.cos(cameraRotation);
             float relX = x - renderPos.getX();
             float relY = y - renderPos.getY();
 
-            float heightRotated = Math.abs(widthScaled * sprRotSin) + Math.abs(heightScaled * sprRotCos);
-            float widthRotated = Math.abs(widthScaled * sprRotCos) + Math.abs(heightScaled * sprRotSin);
-            float yRotated = (relX * camRotSin) + (relY * camRotCos) + renderPos.getY();
-            float xRotated = (relX * camRotCos) - (relY * camRotSin) + renderPos.getX();
+            heightRotated = Math.abs(widthScaled * sprRotSin) + Math.abs(heightScaled * sprRotCos);
+            widthRotated = Math.abs(widthScaled * sprRotCos) + Math.abs(heightScaled * sprRotSin);
+            yRotated = (relX * camRotSin) + (relY * camRotCos) + renderPos.getY();
+            xRotated = (relX * camRotCos) - (relY * camRotSin) + renderPos.getX();
+        }
 
-            spriteBox = new Box(widthRotated, heightRotated, new Vector(xRotated, yRotated));
-        } else {
-            spriteBox = new Box(widthScaled, heightScaled, new Vector(x, y));
+        projection.projected = true;
+        projection.depth = camera.getPosition().getZ() - snapshot.positions[index].getZ();
+        projection.region = region;
+        projection.x = x;
+        projection.y = y;
+        projection.width = widthScaled;
+        projection.height = heightScaled;
+        projection.rotation = spriteRotation;
+        projection.minX = xRotated - (widthRotated / 2.0f);
+        projection.minY = yRotated - (heightRotated / 2.0f);
+        projection.maxX = xRotated + (widthRotated / 2.0f);
+        projection.maxY = yRotated + (heightRotated / 2.0f);
+        projection.onScreen = Float.compare(projection.minX, viewX + viewWidth) <= 0 &&
+                Float.compare(projection.maxX, viewX) >= 0 &&
+                Float.compare(projection.minY, viewY + viewHeight) <= 0 &&
+                Float.compare(projection.maxY, viewY) >= 0;
+    }
+
+    /**
+     * Check if anything affecting every pixel of the render changed since the previous frame
+     * <br>
+     * This includes the Camera, grid scale, RenderTarget size, and RenderTargets. A change to only the background
+     * Sprite will instead mark the background Layer to be fully redrawn.
+     *
+     * @return True if every Layer needs to be fully redrawn
+     */
+    private boolean viewChanged() {
+        Sprite background = snapshot.background;
+        Region backgroundRegion = snapshot.backgroundRegion;
+
+        boolean changed = !camera.equals(lastCamera) || !snapshot.gridScale.equals(lastGridScale) ||
+                Float.compare(width, lastWidth) != 0 || Float.compare(height, lastHeight) != 0 ||
+                !Arrays.equals(layerTargets, lastLayerTargets);
+        if (background != lastBackground || backgroundRegion != lastBackgroundRegion)
+            full[groupOf[Layer.BACKGROUND.ordinal()]] = true;
+
+        lastCamera = new Camera(camera);
+        lastGridScale = snapshot.gridScale;
+        lastWidth = width;
+        lastHeight = height;
+        lastBackground = background;
+        lastBackgroundRegion = backgroundRegion;
+        System.arraycopy(layerTargets, 0, lastLayerTargets, 0, LAYERS.length);
+        return changed;
+    }
+
+    /**
+     * Redraw a group, either fully, only its dirty areas, or not at all if it is cached and unchanged
+     *
+     * @param group     Index of the group
+     * @param redrawAll True if the whole view changed and everything must be redrawn
+     */
+    private void drawGroup(int group, boolean redrawAll) {
+        boolean layered = groupCount > 1;
+        boolean cached = layered && groupOf[Layer.DYNAMIC.ordinal()] != group;
+        target = groupTarget(group);
+        target.setView(camera.getRotation(), renderPos.getX(), renderPos.getY());
+
+        if (!redrawAll && !full[group]) {
+            if (cached && !changed[group]) return;
+            if (dirtyRegions) {
+                if (!dirty[group].isEmpty()) {
+                    dirty[group].clip(target);
+                    drawLayers(group, dirty[group], 0, projections.size(), true);
+                    target.unclip();
+                }
+                return;
+            }
         }
 
-        if (spriteBox.overlaps(screenBox)) {
-            graphicsContext.setTransform(transform);
-            graphicsContext.drawImage(sprite.getImage(), x - (widthScaled / 2.0),
-                    y - (heightScaled / 2.0), widthScaled, heightScaled);
-            graphicsContext.setTransform(original);
-            sprite.update(deltaTime * entity.getSpeed());
-            entity.setOnScreen(true);
-        } else {
-            entity.setOnScreen(false);
-            if (entity.canUpdateOffScreen()) sprite.update(deltaTime * entity.getSpeed());
+        if (layered || rasterTarget != null) target.clear();
+        drawLayers(group, null, 0, projections.size(), true);
+    }
+
+    /**
+     * Get the RenderTarget of a group
+     *
+     * @param group Index of the group
+     * @return RenderTarget of the first Layer in the group
+     */
+    private RenderTarget groupTarget(int group) {
+        for (int i = 0; i < LAYERS.length; i++) {
+            if (groupOf[i] == group) return layerTargets[i];
+        }
+        return layerTargets[0];
+    }
+
+    /**
+     * Draw every Layer of a group in order
+     *
+     * @param group      Index of the group
+     * @param area       Area to limit drawing to, or null to draw everything
+     * @param from       Index of the first Projection to draw
+     * @param to         Index after the last Projection to draw
+     * @param background True to draw the background if it is in the group
+     */
+    private void drawLayers(int group, DirtyArea area, int from, int to, boolean background) {
+        if (background && groupOf[Layer.BACKGROUND.ordinal()] == group) drawBackground();
+        for (Layer layer : LAYERS) {
+            if (groupOf[layer.ordinal()] != group) continue;
+            Arrays.fill(particlesDrawn, 0, snapshot.particleSystemCount, 0);
+            for (int i = from; i < to; i++) {
+                Projection projection = projections.get(i);
+                if (projection.onScreen && !projection.occluded && projection.layer == layer && (area == null ||
+                        area.overlaps(projection.minX, projection.minY, projection.maxX, projection.maxY))) {
+                    drawParticles(layer, snapshot.depths[projection.index]);
+                    target.draw(projection.region, projection.x, projection.y,
+                            projection.width, projection.height, projection.rotation);
+                }
+            }
+            drawParticles(layer, Float.POSITIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Draw the particles on a Layer that are below a z position and not drawn yet, so particles are drawn between the
+     * Entities in front of and behind them
+     * <br>
+     * Particles are captured from lowest to highest z position, so each ParticleSystem is drawn in a batch between
+     * every pair of Entities it has particles between
+     *
+     * @param layer Layer being drawn
+     * @param z     Z position to draw particles below
+     */
+    private void drawParticles(Layer layer, float z) {
+        if (particlesDrawn.length < snapshot.particleSystemCount)
+            particlesDrawn = new int[snapshot.particleSystemCount];
+        for (int i = 0; i < snapshot.particleSystemCount; i++) {
+            if (snapshot.particleLayers[i] != layer) continue;
+            float[] zs = snapshot.particleZ[i];
+            int from = particlesDrawn[i];
+            int to = from;
+            while (to < snapshot.particleCounts[i] && zs[to] < z) to++;
+            if (to > from) drawParticles(i, from, to);
+            particlesDrawn[i] = to;
+        }
+    }
+
+    /**
+     * Project a range of particles of a ParticleSystem and draw the on-screen ones in one batch
+     *
+     * @param index Index of the ParticleSystem in the Snapshot
+     * @param from  Index of the first particle to draw
+     * @param to    Index after the last particle to draw
+     */
+    private void drawParticles(int index, int from, int to) {
+        int count = to - from;
+        if (particleRects.length < count * 4) particleRects = new float[count * 4];
+
+        Vector gridScale = snapshot.gridScale;
+        float gridX = gridScale.getX();
+        float gridY = gridScale.getY();
+        float gridZ = gridScale.getZ();
+        float camX = camera.getPosition().getX() * gridX;
+        float camY = camera.getPosition().getY() * gridY;
+        float camZ = camera.getPosition().getZ() * gridZ;
+        float viewDistance = camera.getViewDistance() * gridZ;
+        float spriteWidth = snapshot.particleSizes[index * 2] * gridX;
+        float spriteHeight = snapshot.particleSizes[index * 2 + 1] * gridY;
+
+        boolean rotated = Float.compare(camera.getRotation(), 0) != 0;
+        float camRotSin = (float) Math.sin(Math.toRadians(-camera.getRotation()));
+        float camRotCos = (float) Math.cos(Math.toRadians(-camera.getRotation()));
+        float renderX = renderPos.getX();
+        float renderY = renderPos.getY();
+        float[] xs = snapshot.particleX[index];
+        float[] ys = snapshot.particleY[index];
+        float[] zs = snapshot.particleZ[index];
+        float[] rects = particleRects;
+
+        int drawn = 0;
+        for (int i = from; i < to; i++) {
+            float camDist = camZ - zs[i] * gridZ;
+            if (Float.compare(camDist, viewDistance) >= 0) continue;
+            float scale = scale(camDist);
+            if (Float.compare(scale, 0) <= 0) continue;
+
+            float drawWidth = spriteWidth * scale;
+            float drawHeight = spriteHeight * scale;
+            float x = projectX(xs[i] * gridX - camX, scale);
+            float y = projectY(ys[i] * gridY - camY, scale);
+            float screenX = x;
+            float screenY = y;
+            float halfWidth = drawWidth / 2.0f;
+            float halfHeight = drawHeight / 2.0f;
+            if (rotated) {
+                float relX = x - renderX;
+                float relY = y - renderY;
+                screenX = (relX * camRotCos) - (relY * camRotSin) + renderX;
+                screenY = (relX * camRotSin) + (relY * camRotCos) + renderY;
+                halfWidth = halfHeight = halfWidth + halfHeight;
+            }
+            if (screenX + halfWidth < viewX || screenX - halfWidth > viewX + viewWidth ||
+                    screenY + halfHeight < viewY || screenY - halfHeight > viewY + viewHeight) continue;
+
+            rects[drawn * 4] = x;
+            rects[drawn * 4 + 1] = y;
+            rects[drawn * 4 + 2] = drawWidth;
+            rects[drawn * 4 + 3] = drawHeight;
+            drawn++;
+        }
+        if (drawn > 0) target.draw(snapshot.particleRegions[index], rects, drawn);
+    }
+
+    /**
+     * Draw the background Sprite
+     */
+    private void drawBackground() {
+        if (snapshot.background != null) {
+            float drawWidth = snapshot.backgroundWidth * snapshot.gridScale.getX() * camera.getZoom() * resolution();
+            float drawHeight = snapshot.backgroundHeight * snapshot.gridScale.getY() * camera.getZoom() * resolution();
+            target.draw(snapshot.backgroundRegion, renderPos.getX(), renderPos.getY(),
+                    drawWidth, drawHeight, snapshot.backgroundRotation);
+        }
+    }
+
+    /**
+     * Set the Camera to project with, and work out how wide its view spreads with distance
+     *
+     * @param camera Camera of the Snapshot or Viewport being drawn
+     */
+    private void useCamera(Camera camera) {
+        this.camera = camera;
+        double fovRad = Math.toRadians(camera.getFieldOfView());
+        spread = (float) (2.0 * (Math.sin(fovRad / 2.0f) / Math.sin((Math.PI / 2.0) - (fovRad / 2.0f))));
+    }
+
+    /**
+     * Get the perspective scale of something in front of the Camera, shared by Entity and particle projection
+     *
+     * @param camDist Distance in front of the Camera, multiplied by the grid scale
+     * @return Scale from grid pixels to screen pixels, which is not positive when behind the Camera
+     */
+    private float scale(float camDist) {
+        float sensorSize = camera.getSensorSize();
+        return camera.getZoom() * resolution() * (sensorSize / (sensorSize + camDist * spread));
+    }
+
+    /**
+     * Get the unrotated screen x position of something relative to the Camera
+     *
+     * @param relX  X position relative to the Camera, multiplied by the grid scale
+     * @param scale Perspective scale
+     * @return Screen x position
+     */
+    private float projectX(float relX, float scale) {
+        return relX * scale + renderPos.getX();
+    }
+
+    /**
+     * Get the unrotated screen y position of something relative to the Camera, flipped so up is positive
+     *
+     * @param relY  Y position relative to the Camera, multiplied by the grid scale
+     * @param scale Perspective scale
+     * @return Screen y position
+     */
+    private float projectY(float relY, float scale) {
+        return renderPos.getY() - relY * scale;
+    }
+
+    /**
+     * Get the resolution scale of the frame being drawn
+     *
+     * @return Resolution scale, which is always 1 when drawing to the RenderTargets directly
+     */
+    private float resolution() {
+        return rasterTarget != null ? resolution : 1;
+    }
+
+    /**
+     * Show the offscreen rasterized frame on the top output RenderTarget, clearing the others
+     */
+    private void present() {
+        if (rasterRegion == null || rasterRegion.getImage() != rasterTarget.getImage())
+            rasterRegion = new Region(rasterTarget.getImage());
+
+        for (int i = 0; i < LAYERS.length; i++) {
+            RenderTarget output = outputTargets[i];
+            if (i > 0 && output == outputTargets[i - 1]) continue;
+            output.begin();
+            output.clear();
+            if (output == outputTargets[LAYERS.length - 1]) output.present(rasterRegion, outputWidth, outputHeight);
+            output.end();
+        }
+        System.arraycopy(outputTargets, 0, layerTargets, 0, LAYERS.length);
+    }
+
+    /**
+     * Record how often the Sprite of each Entity should animate, based on whether it is on-screen or allowed to update
+     * off-screen, then either pass the Snapshot back to the Scene or animate the Sprites now
+     * <br>
+     * Sprites of distant, small, or off-screen Entities are throttled to update less often. A Snapshot published by
+     * the Scene is marked as rendered, and the Scene applies on-screen flags and animates Sprites on its own thread.
+     * Otherwise, Entities are marked on-screen here, and the background and Sprites are queued on the AnimationClock,
+     * which is advanced if owned by this Renderer. Each Sprite is only updated once, no matter how many Entities share
+     * it.
+     */
+    private void animate() {
+        Arrays.fill(snapshot.intervals, 0, snapshot.count, Float.POSITIVE_INFINITY);
+        for (Projection projection : projections) {
+            float interval;
+            if (projection.onScreen) {
+                interval = Float.compare(projection.depth, lodDistance) >= 0 ||
+                        Math.max(projection.width, projection.height) < lodSize ? lodInterval : 0;
+            } else if (projection.projected && snapshot.updateOffScreen[projection.index]) {
+                interval = offScreenInterval;
+            } else {
+                continue;
+            }
+            snapshot.intervals[projection.index] = Math.min(snapshot.intervals[projection.index], interval);
+        }
+        if (buffered) {
+            snapshot.rendered = true;
+            return;
+        }
+        if (snapshot.background != null) animationClock.queue(snapshot.background);
+        for (int i = 0; i < snapshot.particleSystemCount; i++) animationClock.queue(snapshot.particleSprites[i]);
+        for (int i = 0; i < snapshot.count; i++) {
+            snapshot.entities[i].setOnScreen(snapshot.onScreen[i]);
+            if (snapshot.intervals[i] != Float.POSITIVE_INFINITY)
+                animationClock.queue(snapshot.sprites[i], snapshot.intervals[i]);
+        }
+        if (animationClock == ownClock) animationClock.advance(deltaTime);
+    }
+
+    /**
+     * Get the clock advancing Sprite animations
+     *
+     * @return AnimationClock
+     */
+    public AnimationClock getAnimationClock() {
+        return animationClock;
+    }
+
+    /**
+     * Set the clock advancing Sprite animations, which can be shared between Renderers drawing the same Sprites
+     * <br>
+     * A shared clock is not advanced by this Renderer, and must instead be advanced once per frame by its owner.
+     * Setting this to null restores the clock owned by this Renderer. The clock is not used while the Scene is
+     * buffered, as the Scene then animates its Sprites on its own thread.
+     *
+     * @param animationClock AnimationClock, or null to use the clock owned by this Renderer
+     * @return This Renderer
+     */
+    public Renderer setAnimationClock(AnimationClock animationClock) {
+        this.animationClock = animationClock != null ? animationClock : ownClock;
+        return this;
+    }
+
+    /**
+     * Get the Camera distance beyond which Sprite animations update at the reduced rate
+     *
+     * @return Distance in grid units
+     */
+    public float getLodDistance() {
+        return lodDistance;
+    }
+
+    /**
+     * Set the Camera distance beyond which Sprite animations update at the reduced rate
+     *
+     * @param lodDistance Distance in grid units, or infinity to disable
+     * @return This Renderer
+     */
+    public Renderer setLodDistance(float lodDistance) {
+        this.lodDistance = lodDistance;
+        return this;
+    }
+
+    /**
+     * Get the on-screen size below which Sprite animations update at the reduced rate
+     *
+     * @return Size of the larger Sprite dimension in pixels
+     */
+    public float getLodSize() {
+        return lodSize;
+    }
+
+    /**
+     * Set the on-screen size below which Sprite animations update at the reduced rate
+     *
+     * @param lodSize Size of the larger Sprite dimension in pixels, or 0 to disable
+     * @return This Renderer
+     */
+    public Renderer setLodSize(float lodSize) {
+        this.lodSize = lodSize;
+        return this;
+    }
+
+    /**
+     * Get the time between Sprite animation updates for distant or small Entities
+     *
+     * @return Interval in seconds
+     */
+    public float getLodInterval() {
+        return lodInterval;
+    }
+
+    /**
+     * Set the time between Sprite animation updates for distant or small Entities
+     * <br>
+     * Throttled Sprites still animate at the same speed, but skip frames in between updates. A Sprite shared with a
+     * nearer Entity is still updated every frame.
+     *
+     * @param lodInterval Interval in seconds, or infinity to not update them at all
+     * @return This Renderer
+     */
+    public Renderer setLodInterval(float lodInterval) {
+        this.lodInterval = lodInterval;
+        return this;
+    }
+
+    /**
+     * Get the time between Sprite animation updates for off-screen Entities allowed to update off-screen
+     *
+     * @return Interval in seconds
+     */
+    public float getOffScreenInterval() {
+        return offScreenInterval;
+    }
+
+    /**
+     * Set the time between Sprite animation updates for off-screen Entities allowed to update off-screen
+     *
+     * @param offScreenInterval Interval in seconds, or 0 to update them every frame
+     * @return This Renderer
+     */
+    public Renderer setOffScreenInterval(float offScreenInterval) {
+        this.offScreenInterval = offScreenInterval;
+        return this;
+    }
+
+    /**
+     * Get the cache of pre-scaled Sprite images used when drawing to GraphicsContexts
+     *
+     * @return ScaleCache, or null if disabled
+     */
+    public ScaleCache getScaleCache() {
+        return scaleCache;
+    }
+
+    /**
+     * Set the cache of pre-scaled Sprite images used when drawing to GraphicsContexts
+     * <br>
+     * Setting this to null will scale every Sprite while drawing
+     *
+     * @param scaleCache ScaleCache, or null to disable
+     * @return This Renderer
+     */
+    public Renderer setScaleCache(ScaleCache scaleCache) {
+        this.scaleCache = scaleCache;
+        for (CanvasTarget canvasTarget : canvasTargets.values()) canvasTarget.setScaleCache(scaleCache);
+        return this;
+    }
+
+    /**
+     * Get the cache of pre-rotated Sprite images
+     *
+     * @return RotationCache, or null if disabled
+     */
+    public RotationCache getRotationCache() {
+        return rotationCache;
+    }
+
+    /**
+     * Set the cache of pre-rotated Sprite images
+     * <br>
+     * Rotated Sprites are drawn as pre-rotated images at the nearest angle step of the cache, so they need no rotation
+     * transform and share transform state with unrotated Sprites
+     *
+     * @param rotationCache RotationCache, or null to rotate Sprites while drawing
+     * @return This Renderer
+     */
+    public Renderer setRotationCache(RotationCache rotationCache) {
+        this.rotationCache = rotationCache;
+        return this;
+    }
+
+    /**
+     * Check if only changed areas of the RenderTarget are redrawn each frame
+     *
+     * @return True if dirty region rendering is enabled
+     */
+    public boolean hasDirtyRegions() {
+        return dirtyRegions;
+    }
+
+    /**
+     * Set whether to only redraw the areas of the RenderTarget that changed since the previous frame
+     * <br>
+     * Each Entity's screen bounds are tracked between frames, and only the union of the old and new bounds of changed
+     * Entities is cleared and redrawn. Any change to the Camera, grid scale, or RenderTarget size will redraw the whole
+     * RenderTarget for that frame, as will a change to the background on its Layer. Nothing else may draw to the
+     * RenderTarget while this is enabled.
+     *
+     * @param dirtyRegions True to enable dirty region rendering
+     * @return This Renderer
+     */
+    public Renderer setDirtyRegions(boolean dirtyRegions) {
+        this.dirtyRegions = dirtyRegions;
+        lastCamera = null;
+        return this;
+    }
+
+    /**
+     * Check if Sprites hidden behind occluding Sprites are skipped
+     *
+     * @return True if occlusion culling is enabled
+     */
+    public boolean hasOcclusionCulling() {
+        return occlusionCulling;
+    }
+
+    /**
+     * Set whether to skip drawing Sprites completely hidden behind Sprites set to be occluding
+     * <br>
+     * This reduces overdraw in dense scenes, such as rooms behind walls. Hidden Entities are still on-screen and keep
+     * animating.
+     *
+     * @param occlusionCulling True to enable occlusion culling
+     * @return This Renderer
+     */
+    public Renderer setOcclusionCulling(boolean occlusionCulling) {
+        this.occlusionCulling = occlusionCulling;
+        lastCamera = null;
+        return this;
+    }
+
+    /**
+     * Get the software Rasterizer every Layer is rasterized with before being shown
+     *
+     * @return Rasterizer, or null if drawing to the RenderTargets directly
+     */
+    public Rasterizer getRasterizer() {
+        return rasterTarget != null ? rasterTarget.getRasterizer() : null;
+    }
+
+    /**
+     * Set a software Rasterizer to rasterize every Layer with before being shown
+     * <br>
+     * Every Layer is rasterized in parallel into one offscreen image each frame, which is then drawn to the top
+     * RenderTarget with a single draw. This is faster for scenes with thousands of small Sprites. Dirty regions still
+     * limit what is rasterized, but Layers are not cached separately.
+     *
+     * @param rasterizer Rasterizer, or null to draw to the RenderTargets directly
+     * @return This Renderer
+     */
+    public Renderer setRasterizer(Rasterizer rasterizer) {
+        adaptiveTarget = null;
+        rasterTarget = rasterizer != null ? new ImageTarget(rasterizer) : null;
+        if (rasterTarget == null && targetFrameTime > 0) rasterTarget = adaptiveTarget = new ImageTarget(1, 1);
+        rasterRegion = null;
+        lastCamera = null;
+        return this;
+    }
+
+    /**
+     * Get the resolution scale of the offscreen frame relative to the RenderTargets it is shown on
+     *
+     * @return Resolution scale from 0 to 1
+     */
+    public float getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Set the resolution scale of the offscreen frame relative to the RenderTargets it is shown on
+     * <br>
+     * This only has an effect while rendering offscreen with a Rasterizer or adaptive resolution. The frame is
+     * upscaled with nearest-neighbor sampling when shown.
+     *
+     * @param resolution Resolution scale from 0 to 1
+     * @return This Renderer
+     */
+    public Renderer setResolution(float resolution) {
+        this.resolution = Math.max(0.01f, Math.min(1, resolution));
+        return this;
+    }
+
+    /**
+     * Get the render time adaptive resolution keeps under
+     *
+     * @return Target render time in milliseconds, or 0 if adaptive resolution is disabled
+     */
+    public float getTargetFrameTime() {
+        return targetFrameTime;
+    }
+
+    /**
+     * Enable adaptive resolution, rendering offscreen and lowering the resolution in steps while renders take longer
+     * than a target time, then raising it again once there is headroom
+     * <br>
+     * If no Rasterizer is set, one is created for the offscreen frame. Nearest-neighbor upscaling keeps the lower
+     * resolution nearly invisible for pixel art.
+     *
+     * @param targetFrameTime Target render time in milliseconds, or 0 to disable
+     * @return This Renderer
+     */
+    public Renderer setAdaptiveResolution(float targetFrameTime) {
+        this.targetFrameTime = Math.max(0, targetFrameTime);
+        averageFrameTime = 0;
+        headroomFrames = 0;
+        if (this.targetFrameTime > 0 && rasterTarget == null) {
+            rasterTarget = adaptiveTarget = new ImageTarget(1, 1);
+            rasterRegion = null;
+            lastCamera = null;
+        } else if (this.targetFrameTime == 0) {
+            resolution = 1;
+            if (adaptiveTarget != null) {
+                rasterTarget = adaptiveTarget = null;
+                rasterRegion = null;
+                lastCamera = null;
+            }
         }
+        return this;
+    }
+
+    /**
+     * Get the lowest resolution scale adaptive resolution can lower to
+     *
+     * @return Minimum resolution scale
+     */
+    public float getMinResolution() {
+        return minResolution;
+    }
+
+    /**
+     * Set the lowest resolution scale adaptive resolution can lower to
+     *
+     * @param minResolution Minimum resolution scale from 0 to 1
+     * @return This Renderer
+     */
+    public Renderer setMinResolution(float minResolution) {
+        this.minResolution = Math.max(0.01f, Math.min(1, minResolution));
+        return this;
+    }
+
+    /**
+     * Get the amount the resolution scale changes by in each adaptive resolution step
+     *
+     * @return Resolution step
+     */
+    public float getResolutionStep() {
+        return resolutionStep;
+    }
+
+    /**
+     * Set the amount the resolution scale changes by in each adaptive resolution step
+     *
+     * @param resolutionStep Resolution step from 0 to 1
+     * @return This Renderer
+     */
+    public Renderer setResolutionStep(float resolutionStep) {
+        this.resolutionStep = Math.max(0.01f, Math.min(1, resolutionStep));
+        return this;
     }
 
     /**
@@ -204,6 +1457,6 @@ public class Renderer {
         return Objects.equals(scene, renderer.scene) &&
                 Objects.equals(camera, renderer.camera) &&
                 Objects.equals(renderPos, renderer.renderPos) &&
-                Objects.equals(graphicsContext, renderer.graphicsContext);
+                Objects.equals(target, renderer.target);
     }
 }
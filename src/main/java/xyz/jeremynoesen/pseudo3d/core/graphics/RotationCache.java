@@ -0,0 +1,204 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.IdentityHashMap;
+import java.util.Objects;
+
+/**
+ * Cache of Sprite Regions pre-rotated with nearest-neighbor sampling to angles quantized to a set step
+ * <br>
+ * A pre-rotated Region is the size of the bounding box of the rotated Region, with the rotated Region centered in it,
+ * so it can be drawn without a rotation transform
+ *
+ * @author Jeremy Noesen
+ */
+public class RotationCache extends ImageCache<RotationCache.Key> {
+
+    /**
+     * Regions covering each cached Image, so lookups do not allocate
+     */
+    private final IdentityHashMap<Image, Region> regions;
+
+    /**
+     * Reusable key for lookups, so cache hits do not allocate
+     */
+    private final Key probe;
+
+    /**
+     * Step in degrees that rotations are quantized to
+     */
+    private float step;
+
+    /**
+     * Create a new RotationCache with a budget of 4 megapixels and a step of 5 degrees
+     */
+    public RotationCache() {
+        this(4194304, 5);
+    }
+
+    /**
+     * Create a new RotationCache with a set pixel budget and angle step
+     *
+     * @param budget Maximum total pixels of all rotated Images
+     * @param step   Step in degrees that rotations are quantized to
+     */
+    public RotationCache(long budget, float step) {
+        super(budget);
+        regions = new IdentityHashMap<>();
+        probe = new Key(null, 0);
+        this.step = Math.max(0.01f, step);
+    }
+
+    /**
+     * Get a Region rotated to the nearest step of an angle, rotating it if it is not cached yet
+     *
+     * @param region   Region to rotate
+     * @param rotation Counter-clock-wise rotation in degrees
+     * @return Rotated Region, or null if the Region should be rotated while drawing instead
+     */
+    public Region get(Region region, float rotation) {
+        int steps = Math.round(rotation / step);
+        int turn = Math.max(1, Math.round(360 / step));
+        steps = Math.floorMod(steps, turn);
+
+        probe.region = region;
+        probe.steps = steps;
+        Image image = lookup(probe);
+        if (image == null) {
+            if (region.getImage().getProgress() < 1 || region.getImage().getPixelReader() == null) return null;
+            image = rotate(region, steps * 360.0 / turn);
+            if (!store(new Key(region, steps), image)) return null;
+        }
+        return regions.computeIfAbsent(image, Region::new);
+    }
+
+    /**
+     * Rotate a Region using nearest-neighbor sampling
+     *
+     * @param region   Region to rotate
+     * @param rotation Counter-clock-wise rotation in degrees
+     * @return Rotated Image the size of the bounding box of the rotated Region
+     */
+    private static Image rotate(Region region, double rotation) {
+        int srcWidth = region.getWidth();
+        int srcHeight = region.getHeight();
+        int[] src = new int[srcWidth * srcHeight];
+        region.getImage().getPixelReader().getPixels(region.getX(), region.getY(), srcWidth, srcHeight,
+                PixelFormat.getIntArgbPreInstance(), src, 0, srcWidth);
+
+        double radians = Math.toRadians(rotation);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        int width = Math.max(1, (int) Math.ceil(Math.abs(srcWidth * cos) + Math.abs(srcHeight * sin) - 1e-6));
+        int height = Math.max(1, (int) Math.ceil(Math.abs(srcWidth * sin) + Math.abs(srcHeight * cos) - 1e-6));
+
+        int[] dst = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            double dy = y + 0.5 - height / 2.0;
+            for (int x = 0; x < width; x++) {
+                double dx = x + 0.5 - width / 2.0;
+                int sx = (int) Math.floor(dx * cos - dy * sin + srcWidth / 2.0);
+                int sy = (int) Math.floor(dx * sin + dy * cos + srcHeight / 2.0);
+                if (sx >= 0 && sx < srcWidth && sy >= 0 && sy < srcHeight) dst[y * width + x] = src[sy * srcWidth + sx];
+            }
+        }
+
+        WritableImage rotated = new WritableImage(width, height);
+        rotated.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), dst, 0, width);
+        return rotated;
+    }
+
+    /**
+     * Get the step in degrees that rotations are quantized to
+     *
+     * @return Angle step in degrees
+     */
+    public float getStep() {
+        return step;
+    }
+
+    /**
+     * Set the step in degrees that rotations are quantized to, removing all rotated Images
+     *
+     * @param step Angle step in degrees
+     * @return This RotationCache
+     */
+    public RotationCache setStep(float step) {
+        this.step = Math.max(0.01f, step);
+        clear();
+        return this;
+    }
+
+    /**
+     * Release the Region covering a rotated Image once it is evicted
+     *
+     * @param image Evicted Image
+     */
+    @Override
+    protected void evicted(Image image) {
+        regions.remove(image);
+    }
+
+    /**
+     * Remove all rotated Images
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        regions.clear();
+    }
+
+    /**
+     * Key of a Region rotated to a quantized angle
+     */
+    static class Key {
+
+        /**
+         * Region being rotated
+         */
+        private Region region;
+
+        /**
+         * Number of angle steps the Region is rotated by
+         */
+        private int steps;
+
+        /**
+         * Create a new Key
+         *
+         * @param region Region being rotated
+         * @param steps  Number of angle steps the Region is rotated by
+         */
+        private Key(Region region, int steps) {
+            this.region = region;
+            this.steps = steps;
+        }
+
+        /**
+         * Check if a Key is for the same Region and angle
+         *
+         * @param o Key to check
+         * @return True if equal
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return steps == key.steps && Objects.equals(region, key.region);
+        }
+
+        /**
+         * Get the hash code of the Key, written out so cache lookups do not allocate
+         *
+         * @return Hash code
+         */
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(region) + steps;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache of Sprite Regions pre-scaled with nearest-neighbor sampling to integer sizes
+ * <br>
+ * Once a Region is requested at the same size in enough different frames, a scaled copy is made so later draws are
+ * plain blits. Sizes only seen in one frame, such as under a moving perspective Camera, are never scaled.
+ *
+ * @author Jeremy Noesen
+ */
+public class ScaleCache extends ImageCache<ScaleCache.Key> {
+
+    /**
+     * Maximum number of uncached sizes to count requests for
+     */
+    private static final int MAX_PENDING = 256;
+
+    /**
+     * Requests of sizes that are not cached yet
+     */
+    private final LinkedHashMap<Key, Requests> pending;
+
+    /**
+     * Reusable key for lookups, so cache hits do not allocate
+     */
+    private final Key probe;
+
+    /**
+     * Number of frames requesting the same size before a scaled copy is made
+     */
+    private int repeats;
+
+    /**
+     * Frame being drawn, advanced once per frame by the Renderer
+     */
+    private long frame;
+
+    /**
+     * Create a new ScaleCache with a budget of 4 megapixels that caches sizes requested in two frames
+     */
+    public ScaleCache() {
+        this(4194304, 2);
+    }
+
+    /**
+     * Create a new ScaleCache with a set pixel budget and number of repeats before caching
+     *
+     * @param budget  Maximum total pixels of all scaled Images
+     * @param repeats Number of frames requesting the same size before a scaled copy is made
+     */
+    public ScaleCache(long budget, int repeats) {
+        super(budget);
+        pending = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Requests> eldest) {
+                return size() > MAX_PENDING;
+            }
+        };
+        probe = new Key(null, 0, 0);
+        this.repeats = Math.max(1, repeats);
+        frame = 0;
+    }
+
+    /**
+     * Start counting requests for a new frame
+     * <br>
+     * This is called once per frame by the Renderer, so many draws at the same size in one frame count once
+     *
+     * @return This ScaleCache
+     */
+    public ScaleCache nextFrame() {
+        frame++;
+        return this;
+    }
+
+    /**
+     * Get a Region scaled to a size, scaling it if the size has been requested in enough frames
+     *
+     * @param region Region to scale
+     * @param width  Width to scale to in pixels
+     * @param height Height to scale to in pixels
+     * @return Scaled Image, or null if the Region should be scaled while drawing instead
+     */
+    public Image get(Region region, int width, int height) {
+        if (width <= 0 || height <= 0) return null;
+
+        probe.region = region;
+        probe.width = width;
+        probe.height = height;
+        Image image = lookup(probe);
+        if (image != null) return image;
+        Image source = region.getImage();
+        if (source.getProgress() < 1 || source.isError() || source.getPixelReader() == null) return null;
+
+        Requests requests = pending.get(probe);
+        if (requests == null) {
+            requests = new Requests(frame);
+            pending.put(new Key(region, width, height), requests);
+        } else if (requests.frame != frame) {
+            requests.frame = frame;
+            requests.frames++;
+        }
+        if (requests.frames < repeats) return null;
+        pending.remove(probe);
+
+        image = scale(region, width, height);
+        return store(new Key(region, width, height), image) ? image : null;
+    }
+
+    /**
+     * Scale a Region using nearest-neighbor sampling
+     *
+     * @param region Region to scale
+     * @param width  Width to scale to in pixels
+     * @param height Height to scale to in pixels
+     * @return Scaled Image
+     */
+    private static Image scale(Region region, int width, int height) {
+        int srcWidth = region.getWidth();
+        int srcHeight = region.getHeight();
+        int[] src = new int[srcWidth * srcHeight];
+        region.getImage().getPixelReader().getPixels(region.getX(), region.getY(), srcWidth, srcHeight,
+                PixelFormat.getIntArgbPreInstance(), src, 0, srcWidth);
+
+        int[] dst = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int row = (int) ((y + 0.5) * srcHeight / height) * srcWidth;
+            for (int x = 0; x < width; x++) {
+                dst[y * width + x] = src[row + (int) ((x + 0.5) * srcWidth / width)];
+            }
+        }
+
+        WritableImage scaled = new WritableImage(width, height);
+        scaled.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), dst, 0, width);
+        return scaled;
+    }
+
+    /**
+     * Get the number of frames requesting the same size before a scaled copy is made
+     *
+     * @return Number of repeats
+     */
+    public int getRepeats() {
+        return repeats;
+    }
+
+    /**
+     * Set the number of frames requesting the same size before a scaled copy is made
+     *
+     * @param repeats Number of repeats
+     * @return This ScaleCache
+     */
+    public ScaleCache setRepeats(int repeats) {
+        this.repeats = Math.max(1, repeats);
+        return this;
+    }
+
+    /**
+     * Remove all scaled Images and request counts
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        pending.clear();
+    }
+
+    /**
+     * Requests of a size that is not cached yet
+     */
+    private static class Requests {
+
+        /**
+         * Number of different frames the size was requested in
+         */
+        private int frames;
+
+        /**
+         * Frame the size was last requested in
+         */
+        private long frame;
+
+        /**
+         * Create a new Requests for a size first requested in a frame
+         *
+         * @param frame Frame of the first request
+         */
+        private Requests(long frame) {
+            this.frame = frame;
+            frames = 1;
+        }
+    }
+
+    /**
+     * Key of a Region scaled to a size
+     */
+    static class Key {
+
+        /**
+         * Region being scaled
+         */
+        private Region region;
+
+        /**
+         * Scaled width in pixels
+         */
+        private int width;
+
+        /**
+         * Scaled height in pixels
+         */
+        private int height;
+
+        /**
+         * Create a new Key
+         *
+         * @param region Region being scaled
+         * @param width  Scaled width in pixels
+         * @param height Scaled height in pixels
+         */
+        private Key(Region region, int width, int height) {
+            this.region = region;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Check if a Key is for the same Region and size
+         *
+         * @param o Key to check
+         * @return True if equal
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height && Objects.equals(region, key.region);
+        }
+
+        /**
+         * Get the hash code of the Key, written out so cache lookups do not allocate
+         *
+         * @return Hash code
+         */
+        @Override
+        public int hashCode() {
+            int hash = Objects.hashCode(region);
+            hash = 31 * hash + width;
+            return 31 * hash + height;
+        }
+    }
+}
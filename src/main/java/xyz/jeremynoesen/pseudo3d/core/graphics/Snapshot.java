@@ -0,0 +1,465 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import xyz.jeremynoesen.pseudo3d.core.Scene;
+import xyz.jeremynoesen.pseudo3d.core.object.Entity;
+import xyz.jeremynoesen.pseudo3d.core.object.ParticleSystem;
+import xyz.jeremynoesen.pseudo3d.core.util.Vector;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Copy of everything a Renderer needs from a Scene to draw a frame
+ * <br>
+ * Entities and the particles of each ParticleSystem are stored in draw order, from lowest to highest z position.
+ * Arrays are reused between captures, so a Snapshot does not allocate once it has grown to fit the Scene.
+ * <br>
+ * A Renderer drawing a published Snapshot does not modify the Entities in it. It instead records which Entities were
+ * on-screen and how often their Sprites should animate in the Snapshot, which is passed back to the thread updating
+ * the Scene by its SnapshotBuffer.
+ *
+ * @author Jeremy Noesen
+ */
+public class Snapshot {
+
+    /**
+     * Comparator used to sort Scene Entities from lowest to highest z position for draw order
+     */
+    private static final Comparator<Entity> Z_COMPARATOR = (o1, o2) -> {
+        float diff = o1.getPosition().getZ() - o2.getPosition().getZ();
+        return Math.round(diff / (Float.compare(diff, 0) == 0 ? 1 : Math.abs(diff)));
+    };
+
+    /**
+     * Number of Entities captured
+     */
+    int count;
+
+    /**
+     * Captured Entities
+     */
+    Entity[] entities;
+
+    /**
+     * Position of each Entity
+     */
+    Vector[] positions;
+
+    /**
+     * Z position of each Entity, in ascending order
+     */
+    float[] depths;
+
+    /**
+     * Sprite of each Entity, or null if it should not be drawn
+     */
+    Sprite[] sprites;
+
+    /**
+     * Current Region of each Sprite, for the animation speed and phase of its Entity
+     */
+    Region[] regions;
+
+    /**
+     * Width and height of each Sprite in grid units
+     */
+    float[] sizes;
+
+    /**
+     * Counter-clock-wise rotation of each Sprite in degrees
+     */
+    float[] rotations;
+
+    /**
+     * Layer of each Entity
+     */
+    Layer[] layers;
+
+    /**
+     * Whether the Sprite of each Entity hides Sprites behind it
+     */
+    boolean[] occluding;
+
+    /**
+     * Whether each Entity can update when not on-screen
+     */
+    boolean[] updateOffScreen;
+
+    /**
+     * Whether each Entity was on-screen when the Snapshot was rendered
+     */
+    boolean[] onScreen;
+
+    /**
+     * Minimum time between Sprite animation updates of each Entity in seconds, as chosen when the Snapshot was
+     * rendered, or infinity to not animate it
+     */
+    float[] intervals;
+
+    /**
+     * Whether the on-screen flags and animation intervals were filled in by rendering the Snapshot since it was
+     * captured
+     */
+    boolean rendered;
+
+    /**
+     * Copy of the Scene Camera
+     */
+    final Camera camera;
+
+    /**
+     * Number of Viewports captured
+     */
+    int viewportCount;
+
+    /**
+     * Copy of the Camera of each Viewport
+     */
+    Camera[] viewportCameras;
+
+    /**
+     * Rectangle of each Viewport, stored as x, y, width, and height in fractions of the RenderTarget size
+     */
+    float[] viewportBounds;
+
+    /**
+     * Whether each Viewport draws the background
+     */
+    boolean[] viewportBackgrounds;
+
+    /**
+     * Number of ParticleSystems captured
+     */
+    int particleSystemCount;
+
+    /**
+     * Number of particles in each ParticleSystem
+     */
+    int[] particleCounts;
+
+    /**
+     * Sort keys of the particles of the ParticleSystem being captured, each holding its z position above its index
+     */
+    private long[] particleKeys;
+
+    /**
+     * X position of every particle of each ParticleSystem, from lowest to highest z position
+     */
+    float[][] particleX;
+
+    /**
+     * Y position of every particle of each ParticleSystem, from lowest to highest z position
+     */
+    float[][] particleY;
+
+    /**
+     * Z position of every particle of each ParticleSystem, from lowest to highest
+     */
+    float[][] particleZ;
+
+    /**
+     * Sprite of each ParticleSystem
+     */
+    Sprite[] particleSprites;
+
+    /**
+     * Current Region of the Sprite of each ParticleSystem
+     */
+    Region[] particleRegions;
+
+    /**
+     * Width and height of the Sprite of each ParticleSystem in grid units
+     */
+    float[] particleSizes;
+
+    /**
+     * Layer of each ParticleSystem
+     */
+    Layer[] particleLayers;
+
+    /**
+     * Grid scale of the Scene
+     */
+    Vector gridScale;
+
+    /**
+     * Background Sprite of the Scene, or null if there is none
+     */
+    Sprite background;
+
+    /**
+     * Current Region of the background Sprite
+     */
+    Region backgroundRegion;
+
+    /**
+     * Width of the background Sprite in grid units
+     */
+    float backgroundWidth;
+
+    /**
+     * Height of the background Sprite in grid units
+     */
+    float backgroundHeight;
+
+    /**
+     * Counter-clock-wise rotation of the background Sprite in degrees
+     */
+    float backgroundRotation;
+
+    /**
+     * Create a new empty Snapshot
+     */
+    public Snapshot() {
+        count = 0;
+        entities = new Entity[64];
+        positions = new Vector[64];
+        depths = new float[64];
+        sprites = new Sprite[64];
+        regions = new Region[64];
+        sizes = new float[64 * 2];
+        rotations = new float[64];
+        layers = new Layer[64];
+        occluding = new boolean[64];
+        updateOffScreen = new boolean[64];
+        onScreen = new boolean[64];
+        intervals = new float[64];
+        rendered = false;
+        camera = new Camera();
+        viewportCount = 0;
+        viewportCameras = new Camera[0];
+        viewportBounds = new float[0];
+        viewportBackgrounds = new boolean[0];
+        particleSystemCount = 0;
+        particleCounts = new int[0];
+        particleKeys = new long[0];
+        particleX = new float[0][];
+        particleY = new float[0][];
+        particleZ = new float[0][];
+        particleSprites = new Sprite[0];
+        particleRegions = new Region[0];
+        particleSizes = new float[0];
+        particleLayers = new Layer[0];
+        gridScale = new Vector(1, 1, 1);
+    }
+
+    /**
+     * Sort the Entities of a Scene into draw order and capture everything needed to draw them
+     * <br>
+     * This must be called on the thread that updates the Scene
+     *
+     * @param scene Scene to capture
+     * @return This Snapshot
+     */
+    public Snapshot capture(Scene scene) {
+        scene.getEntities().sort(Z_COMPARATOR);
+        int size = scene.getEntities().size();
+        if (size > entities.length) {
+            int length = Math.max(size, entities.length * 2);
+            entities = new Entity[length];
+            positions = new Vector[length];
+            depths = new float[length];
+            sprites = new Sprite[length];
+            regions = new Region[length];
+            sizes = new float[length * 2];
+            rotations = new float[length];
+            layers = new Layer[length];
+            occluding = new boolean[length];
+            updateOffScreen = new boolean[length];
+            onScreen = new boolean[length];
+            intervals = new float[length];
+        }
+
+        int i = 0;
+        for (Entity entity : scene.getEntities()) {
+            Sprite sprite = entity.isEnabled() && entity.isVisible() ? entity.getSprite() : null;
+            entities[i] = entity;
+            positions[i] = entity.getPosition();
+            depths[i] = positions[i].getZ();
+            sprites[i] = sprite;
+            layers[i] = entity.getLayer();
+            updateOffScreen[i] = entity.canUpdateOffScreen();
+            occluding[i] = sprite != null && sprite.isOccluding();
+            if (sprite != null) {
+                regions[i] = entity.getRegion();
+                sizes[i * 2] = sprite.getWidth();
+                sizes[i * 2 + 1] = sprite.getHeight();
+                rotations[i] = sprite.getRotation();
+            } else {
+                regions[i] = null;
+            }
+            i++;
+        }
+        if (i < count) {
+            Arrays.fill(entities, i, count, null);
+            Arrays.fill(positions, i, count, null);
+            Arrays.fill(sprites, i, count, null);
+            Arrays.fill(regions, i, count, null);
+        }
+        count = i;
+        rendered = false;
+
+        camera.copy(scene.getCamera());
+        captureViewports(scene);
+        captureParticles(scene);
+        gridScale = scene.getGridScale();
+        background = scene.getBackground();
+        if (background != null) {
+            backgroundRegion = background.getRegion();
+            backgroundWidth = background.getWidth();
+            backgroundHeight = background.getHeight();
+            backgroundRotation = background.getRotation();
+        } else {
+            backgroundRegion = null;
+        }
+        return this;
+    }
+
+    /**
+     * Capture the Camera and rectangle of every Viewport of a Scene
+     *
+     * @param scene Scene to capture
+     */
+    private void captureViewports(Scene scene) {
+        viewportCount = scene.getViewports().size();
+        if (viewportCount > viewportCameras.length) {
+            Camera[] cameras = new Camera[viewportCount];
+            System.arraycopy(viewportCameras, 0, cameras, 0, viewportCameras.length);
+            for (int i = viewportCameras.length; i < viewportCount; i++) cameras[i] = new Camera();
+            viewportCameras = cameras;
+            viewportBounds = new float[viewportCount * 4];
+            viewportBackgrounds = new boolean[viewportCount];
+        }
+        for (int i = 0; i < viewportCount; i++) {
+            Viewport viewport = scene.getViewports().get(i);
+            viewportCameras[i].copy(viewport.getCamera());
+            viewportBounds[i * 4] = viewport.getX();
+            viewportBounds[i * 4 + 1] = viewport.getY();
+            viewportBounds[i * 4 + 2] = viewport.getWidth();
+            viewportBounds[i * 4 + 3] = viewport.getHeight();
+            viewportBackgrounds[i] = viewport.hasBackground();
+        }
+    }
+
+    /**
+     * Capture the particle positions and Sprite of every enabled ParticleSystem of a Scene, sorting the particles of
+     * each into draw order so they can be drawn between Entities
+     * <br>
+     * Position arrays are reused and only grow, so capturing does not allocate once they fit every ParticleSystem
+     *
+     * @param scene Scene to capture
+     */
+    private void captureParticles(Scene scene) {
+        int size = scene.getParticleSystems().size();
+        if (size > particleCounts.length) {
+            particleCounts = new int[size];
+            particleX = Arrays.copyOf(particleX, size);
+            particleY = Arrays.copyOf(particleY, size);
+            particleZ = Arrays.copyOf(particleZ, size);
+            particleSprites = new Sprite[size];
+            particleRegions = new Region[size];
+            particleSizes = new float[size * 2];
+            particleLayers = new Layer[size];
+        }
+
+        int i = 0;
+        for (ParticleSystem particleSystem : scene.getParticleSystems()) {
+            Sprite sprite = particleSystem.getSprite();
+            int count = particleSystem.getCount();
+            if (!particleSystem.isEnabled() || sprite == null || count == 0) continue;
+            if (particleX[i] == null || particleX[i].length < count) {
+                int length = Math.max(count, particleX[i] == null ? 0 : particleX[i].length * 2);
+                particleX[i] = new float[length];
+                particleY[i] = new float[length];
+                particleZ[i] = new float[length];
+            }
+            sortParticles(particleSystem, count, i);
+            particleCounts[i] = count;
+            particleSprites[i] = sprite;
+            particleRegions[i] = sprite.getRegion();
+            particleSizes[i * 2] = sprite.getWidth();
+            particleSizes[i * 2 + 1] = sprite.getHeight();
+            particleLayers[i] = particleSystem.getLayer();
+            i++;
+        }
+        if (i < particleSystemCount) {
+            Arrays.fill(particleSprites, i, particleSystemCount, null);
+            Arrays.fill(particleRegions, i, particleSystemCount, null);
+        }
+        particleSystemCount = i;
+    }
+
+    /**
+     * Copy the particle positions of a ParticleSystem from lowest to highest z position
+     * <br>
+     * Each particle is sorted by a key holding its z position, made comparable as an integer, above its index, so the
+     * primitive sort does not allocate
+     *
+     * @param particleSystem ParticleSystem to copy
+     * @param count          Number of particles
+     * @param index          Index of the ParticleSystem in the Snapshot
+     */
+    private void sortParticles(ParticleSystem particleSystem, int count, int index) {
+        if (particleKeys.length < count) particleKeys = new long[Math.max(count, particleKeys.length * 2)];
+        float[] xs = particleSystem.getX();
+        float[] ys = particleSystem.getY();
+        float[] zs = particleSystem.getZ();
+        for (int i = 0; i < count; i++) {
+            int bits = Float.floatToIntBits(zs[i]);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            particleKeys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(particleKeys, 0, count);
+        for (int i = 0; i < count; i++) {
+            int particle = (int) particleKeys[i];
+            particleX[index][i] = xs[particle];
+            particleY[index][i] = ys[particle];
+            particleZ[index][i] = zs[particle];
+        }
+    }
+
+    /**
+     * Find the first Entity in draw order with a z position greater than a value
+     *
+     * @param z Z position to search for
+     * @return Index of the first Entity past the z position, or the Entity count if there is none
+     */
+    int firstAbove(float z) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (depths[mid] > z) high = mid;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+    /**
+     * Get the number of Entities captured
+     *
+     * @return Number of Entities
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get a captured Entity
+     *
+     * @param index Index of the Entity in draw order
+     * @return Entity at the index
+     */
+    public Entity getEntity(int index) {
+        return entities[index];
+    }
+
+    /**
+     * Get the copy of the Scene Camera
+     *
+     * @return Captured Camera, which must not be modified
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+}
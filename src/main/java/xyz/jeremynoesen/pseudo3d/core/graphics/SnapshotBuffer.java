@@ -0,0 +1,168 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import xyz.jeremynoesen.pseudo3d.core.Scene;
+import xyz.jeremynoesen.pseudo3d.core.object.Entity;
+import xyz.jeremynoesen.pseudo3d.core.object.ParticleSystem;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer of Snapshots passed from the thread updating a Scene to the thread rendering it
+ * <br>
+ * The updating thread captures into a back Snapshot and swaps it with the middle one when complete, and the rendering
+ * thread swaps the middle one with its front Snapshot when a newer one is available. Neither thread ever waits on the
+ * other, and the rendering thread always reads the latest complete Snapshot.
+ * <br>
+ * Snapshots the rendering thread is done with come back to the updating thread, carrying which Entities were
+ * on-screen and how often their Sprites should animate. Sprite animations are advanced on the updating thread before
+ * each capture, so Sprites and Entities are only ever modified by the thread updating the Scene.
+ *
+ * @author Jeremy Noesen
+ */
+public class SnapshotBuffer {
+
+    /**
+     * Bit set on the middle index when it holds a Snapshot the reader has not seen
+     */
+    private static final int FRESH = 4;
+
+    /**
+     * Mask of the Snapshot index in the middle index
+     */
+    private static final int INDEX = 3;
+
+    /**
+     * The three Snapshots
+     */
+    private final Snapshot[] snapshots;
+
+    /**
+     * Index of the middle Snapshot being handed over, with the fresh bit
+     */
+    private final AtomicInteger middle;
+
+    /**
+     * Index of the Snapshot being written by the updating thread
+     */
+    private int back;
+
+    /**
+     * Index of the Snapshot being read by the rendering thread
+     */
+    private int front;
+
+    /**
+     * Clock advancing Sprite animations on the updating thread
+     */
+    private final AnimationClock clock;
+
+    /**
+     * Entities whose Sprites animate, as of the latest rendered Snapshot passed back
+     */
+    private Entity[] animated;
+
+    /**
+     * Minimum time between Sprite animation updates of each animated Entity in seconds
+     */
+    private float[] intervals;
+
+    /**
+     * Number of animated Entities
+     */
+    private int animatedCount;
+
+    /**
+     * Create a new SnapshotBuffer with three empty Snapshots
+     */
+    public SnapshotBuffer() {
+        snapshots = new Snapshot[]{new Snapshot(), new Snapshot(), new Snapshot()};
+        back = 0;
+        middle = new AtomicInteger(1);
+        front = 2;
+        clock = new AnimationClock();
+        animated = new Entity[0];
+        intervals = new float[0];
+        animatedCount = 0;
+    }
+
+    /**
+     * Apply what was rendered from the Snapshot passed back, advance Sprite animations, then capture a Scene and
+     * publish it as the latest Snapshot
+     * <br>
+     * This must only be called from the thread updating the Scene
+     *
+     * @param scene     Scene to capture
+     * @param deltaTime Time elapsed since the previous publish in seconds, used for Sprite updating
+     */
+    public void publish(Scene scene, float deltaTime) {
+        Snapshot snapshot = snapshots[back];
+        if (snapshot.rendered) receive(snapshot);
+        animate(scene, deltaTime);
+        snapshot.capture(scene);
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Set whether each Entity of a rendered Snapshot is on-screen, and keep how often their Sprites should animate
+     * until the next rendered Snapshot is passed back
+     *
+     * @param snapshot Snapshot filled in by rendering it
+     */
+    private void receive(Snapshot snapshot) {
+        if (animated.length < snapshot.count) {
+            animated = new Entity[snapshot.entities.length];
+            intervals = new float[snapshot.entities.length];
+        }
+        animatedCount = 0;
+        for (int i = 0; i < snapshot.count; i++) {
+            snapshot.entities[i].setOnScreen(snapshot.onScreen[i]);
+            if (snapshot.intervals[i] == Float.POSITIVE_INFINITY) continue;
+            animated[animatedCount] = snapshot.entities[i];
+            intervals[animatedCount++] = snapshot.intervals[i];
+        }
+        Arrays.fill(animated, animatedCount, animated.length, null);
+        snapshot.rendered = false;
+    }
+
+    /**
+     * Queue the background, ParticleSystem, and animated Entity Sprites of a Scene, then advance them once
+     *
+     * @param scene     Scene to animate
+     * @param deltaTime Time elapsed in seconds
+     */
+    private void animate(Scene scene, float deltaTime) {
+        if (scene.getBackground() != null) clock.queue(scene.getBackground());
+        for (ParticleSystem particleSystem : scene.getParticleSystems()) {
+            if (particleSystem.isEnabled() && particleSystem.getSprite() != null)
+                clock.queue(particleSystem.getSprite());
+        }
+        for (int i = 0; i < animatedCount; i++) {
+            Entity entity = animated[i];
+            if (entity.getSprite() != null && entity.isEnabled() && entity.isVisible())
+                clock.queue(entity.getSprite(), intervals[i]);
+        }
+        clock.advance(deltaTime);
+    }
+
+    /**
+     * Get the latest complete Snapshot, which stays unchanged until the next read
+     * <br>
+     * This must only be called from the rendering thread
+     *
+     * @return Latest Snapshot
+     */
+    public Snapshot read() {
+        if ((middle.get() & FRESH) != 0) front = middle.getAndSet(front) & INDEX;
+        return snapshots[front];
+    }
+
+    /**
+     * Check if a Snapshot was published since the last read
+     *
+     * @return True if a newer Snapshot is available
+     */
+    public boolean isFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+}
@@ -1,15 +1,17 @@
 package xyz.jeremynoesen.pseudo3d.core.graphics;
 
 import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import xyz.jeremynoesen.pseudo3d.core.util.Axis;
 import xyz.jeremynoesen.pseudo3d.core.util.Vector;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Sprites to be rendered in game
@@ -19,9 +21,9 @@ import java.util.Objects;
 public class Sprite {
 
     /**
-     * Image used for the Sprite
+     * Region of an Image currently used for the Sprite
      */
-    private Image image;
+    private Region region;
 
     /**
      * Width of the Sprite in grid units
@@ -44,9 +46,24 @@ public class Sprite {
     private float currentFrame;
 
     /**
-     * All images of the animation
+     * Stamp of the AnimationClock frame the Sprite was last queued for an update in
      */
-    private ArrayList<Image> images;
+    long stamp;
+
+    /**
+     * Whether the Sprite is due to update in the AnimationClock frame it was last queued in
+     */
+    boolean due;
+
+    /**
+     * Time in seconds the Sprite was queued for but not yet updated with, from being throttled
+     */
+    float pending;
+
+    /**
+     * All Regions of the animation
+     */
+    private ArrayList<Region> regions;
 
     /**
      * Time between frames
@@ -64,36 +81,90 @@ public class Sprite {
     private boolean paused;
 
     /**
-     * Create a new image Sprite
+     * Whether the opaque part of the Sprite hides Sprites behind it
+     */
+    private boolean occluding;
+
+    /**
+     * Paths of the images the Sprite acquired from Assets, or null if it was not loaded from files
+     */
+    private String[] sources;
+
+    /**
+     * Future completed once the images of the Sprite are loaded in the background, or null if they were not
+     */
+    private CompletableFuture<Sprite> loaded;
+
+    /**
+     * Regions of the images loaded in the background, one per frame, published once by the loading thread and never
+     * modified, or null until loaded
+     */
+    private volatile Region[] loadedRegions;
+
+    /**
+     * Whether the loaded Regions were swapped in for the placeholders by the thread updating the Sprite
+     */
+    private boolean swapped;
+
+    /**
+     * Whether the Sprite released its images, so images still loading are released as soon as they arrive
+     */
+    private boolean released;
+
+    /**
+     * Frames decoded on demand for a streamed Sprite, or null if every frame is kept decoded
+     */
+    private FrameStream stream;
+
+    /**
+     * Whether the Sprite was released from another thread and its streamed frames are still to be dropped by the
+     * thread updating the Sprite
+     */
+    private volatile boolean clearStream;
+
+    /**
+     * Create a new image Sprite, sharing the decoded image through Assets
      *
      * @param width  Sprite width in grid units
      * @param height Sprite height in grid units
      * @param src    Path to image to use for Sprite
      */
     public Sprite(float width, float height, String src) throws FileNotFoundException {
-        this.image = new Image(new FileInputStream(src));
+        this(width, height, new Region(Assets.acquire(src)));
+        sources = new String[]{src};
+    }
+
+    /**
+     * Create a new Sprite from a Region of an Image, such as one packed in an Atlas
+     *
+     * @param width  Sprite width in grid units
+     * @param height Sprite height in grid units
+     * @param region Region of an Image to use for Sprite
+     */
+    public Sprite(float width, float height, Region region) {
+        this.region = region;
         this.width = width;
         this.height = height;
         this.rotation = 0;
     }
 
     /**
-     * Create a new color Sprite with specified dimensions and color
+     * Create a new color Sprite with specified dimensions and color, sharing one image with Sprites of the Color
      *
      * @param width  Sprite width in grid units
      * @param height Sprite height in grid units
      * @param color  Sprite Color
      */
     public Sprite(float width, float height, Color color) {
-        this.image = new WritableImage(1, 1);
+        this.region = Region.of(color);
         this.width = width;
         this.height = height;
         this.rotation = 0;
-        ((WritableImage) image).getPixelWriter().setColor(0, 0, color);
     }
 
     /**
-     * Create a new animated Sprite from a list of images and specified frame rate, width, height, and loop status
+     * Create a new animated Sprite from a list of images and specified frame rate, width, height, and loop status,
+     * sharing the decoded images through Assets
      *
      * @param src       Path to all images of the animated Sprite
      * @param frameRate Frames per second of the Sprite
@@ -102,12 +173,22 @@ public class Sprite {
      * @param loop      True to allow Sprite to loop
      */
     public Sprite(float width, float height, float frameRate, boolean loop, String... src) throws FileNotFoundException {
-        ArrayList<Image> images = new ArrayList<>();
-        for (String s : src) {
-            images.add(new Image(new FileInputStream(s)));
-        }
-        this.images = images;
-        this.image = images.get(0);
+        this(width, height, frameRate, loop, load(src));
+        sources = src.clone();
+    }
+
+    /**
+     * Create a new animated Sprite from Regions of Images, such as ones packed in an Atlas
+     *
+     * @param width     Sprite width in grid units
+     * @param height    Sprite height in grid units
+     * @param frameRate Frames per second of the Sprite
+     * @param loop      True to allow Sprite to loop
+     * @param regions   Regions of all frames of the animated Sprite
+     */
+    public Sprite(float width, float height, float frameRate, boolean loop, Region... regions) {
+        this.regions = new ArrayList<>(Arrays.asList(regions));
+        this.region = regions[0];
         this.width = width;
         this.height = height;
         this.rotation = 0;
@@ -118,28 +199,312 @@ public class Sprite {
 
     /**
      * Copy constructor for Sprites
+     * <br>
+     * If the other Sprite is loading in the background, the copy takes its images once they load. If it finished
+     * loading after its frames were copied, the copy swaps in the loaded images itself.
      *
      * @param sprite Sprite to copy
      */
     public Sprite(Sprite sprite) {
-        image = sprite.image;
+        sprite.syncFrames();
+        region = sprite.region;
         width = sprite.width;
         height = sprite.height;
         rotation = sprite.rotation;
-        if (sprite.images != null) images = new ArrayList<>(sprite.images);
+        if (sprite.regions != null) regions = new ArrayList<>(sprite.regions);
         frameStep = sprite.frameStep;
         currentFrame = sprite.currentFrame;
         loop = sprite.loop;
         paused = sprite.paused;
+        occluding = sprite.occluding;
+        if (sprite.stream != null) {
+            stream = new FrameStream(sprite.stream.getSources(), sprite.stream.getAhead(),
+                    sprite.stream.getPlaceholder());
+            Collections.fill(regions, stream.getPlaceholder());
+            region = stream.getPlaceholder();
+            streamFrames(null);
+        }
+        synchronized (sprite) {
+            if (sprite.loaded != null && !sprite.loaded.isDone()) {
+                loaded = sprite.loaded.thenApply(this::adopt);
+                return;
+            }
+            if (sprite.loaded != null) {
+                loaded = sprite.loaded.isCompletedExceptionally() ? sprite.loaded :
+                        CompletableFuture.completedFuture(this);
+                loadedRegions = sprite.loadedRegions;
+            }
+            if (sprite.sources != null) {
+                sources = sprite.sources.clone();
+                for (String src : sources) Assets.retain(src);
+            }
+        }
+    }
+
+    /**
+     * Create a new image Sprite which shows the Assets placeholder until its image is loaded in the background
+     *
+     * @param width  Sprite width in grid units
+     * @param height Sprite height in grid units
+     * @param src    Path to image to use for Sprite
+     * @return Sprite, which can be drawn right away
+     */
+    public static Sprite load(float width, float height, String src) {
+        Sprite sprite = new Sprite(width, height, new Region(Assets.getPlaceholder()));
+        sprite.loadAsync(src);
+        return sprite;
+    }
+
+    /**
+     * Create a new animated Sprite which shows the Assets placeholder for every frame until its images are loaded in
+     * the background
+     *
+     * @param width     Sprite width in grid units
+     * @param height    Sprite height in grid units
+     * @param frameRate Frames per second of the Sprite
+     * @param loop      True to allow Sprite to loop
+     * @param src       Path to all images of the animated Sprite
+     * @return Sprite, which can be drawn and animated right away
+     */
+    public static Sprite load(float width, float height, float frameRate, boolean loop, String... src) {
+        Region[] placeholders = new Region[src.length];
+        Arrays.fill(placeholders, new Region(Assets.getPlaceholder()));
+        Sprite sprite = new Sprite(width, height, frameRate, loop, placeholders);
+        sprite.loadAsync(src);
+        return sprite;
+    }
+
+    /**
+     * Create a new animated Sprite which decodes its frames in the background as it plays, keeping only the current
+     * frame and a few frames ahead of it decoded
+     * <br>
+     * This suits long animations that would take too much memory fully decoded. Streamed frames are not shared
+     * through the Assets cache. If a frame is not decoded in time, the last decoded frame stays shown.
+     *
+     * @param width     Sprite width in grid units
+     * @param height    Sprite height in grid units
+     * @param frameRate Frames per second of the Sprite
+     * @param loop      True to allow Sprite to loop
+     * @param ahead     Number of frames to decode ahead of the current frame
+     * @param src       Path to all images of the animated Sprite
+     * @return Sprite, which can be drawn and animated right away
+     */
+    public static Sprite stream(float width, float height, float frameRate, boolean loop, int ahead, String... src) {
+        Region placeholder = new Region(Assets.getPlaceholder());
+        Region[] placeholders = new Region[src.length];
+        Arrays.fill(placeholders, placeholder);
+        Sprite sprite = new Sprite(width, height, frameRate, loop, placeholders);
+        sprite.stream = new FrameStream(src.clone(), ahead, placeholder);
+        sprite.streamFrames(null);
+        return sprite;
+    }
+
+    /**
+     * Advance the frames of a streamed Sprite to the current frame, and show the current frame if it is decoded
+     *
+     * @param previous Region shown before the frame changed, kept if the current frame is not decoded yet
+     */
+    private void streamFrames(Region previous) {
+        int frame = Math.max(0, Math.min(regions.size() - 1, getFrame()));
+        stream.advance(regions, frame, Float.compare(frameStep, 0) < 0 ? -1 : 1, loop);
+        region = regions.get(frame);
+        if (!stream.isDecoded(region) && previous != null && stream.isDecoded(previous)) region = previous;
+    }
+
+    /**
+     * Start loading the images of the Sprite in the background
+     *
+     * @param src Paths to the images, one per frame
+     */
+    @SuppressWarnings("unchecked")
+    private void loadAsync(String... src) {
+        CompletableFuture<Image>[] futures = new CompletableFuture[src.length];
+        for (int i = 0; i < src.length; i++) futures[i] = Assets.load(src[i]);
+        loaded = CompletableFuture.allOf(futures).handle((ignored, error) -> loaded(src, futures, error));
+    }
+
+    /**
+     * Publish the loaded images to replace the placeholders, or release them if loading failed or the Sprite was
+     * released
+     * <br>
+     * This runs on a loading thread, so the Regions are only published here and are swapped in by the thread updating
+     * the Sprite
+     *
+     * @param src     Paths to the images, one per frame
+     * @param futures Futures of the images, one per frame
+     * @param error   Error loading any image, or null if all loaded
+     * @return This Sprite
+     */
+    private synchronized Sprite loaded(String[] src, CompletableFuture<Image>[] futures, Throwable error) {
+        if (error != null || released) {
+            for (int i = 0; i < src.length; i++) {
+                if (!futures[i].isCompletedExceptionally()) Assets.release(src[i]);
+            }
+            if (error != null) throw error instanceof CompletionException ?
+                    (CompletionException) error : new CompletionException(error);
+            return this;
+        }
+
+        sources = src.clone();
+        Region[] frames = new Region[futures.length];
+        for (int i = 0; i < futures.length; i++) {
+            frames[i] = new Region(futures[i].join());
+            if (occluding) frames[i].getOpaqueBounds();
+        }
+        loadedRegions = frames;
+        return this;
+    }
+
+    /**
+     * Take the images of a Sprite this Sprite was copied from while it was loading
+     * <br>
+     * This runs on a loading thread, so the loaded Regions of the other Sprite are only published here and are swapped
+     * in by the thread updating this Sprite
+     *
+     * @param sprite Sprite that finished loading
+     * @return This Sprite
+     */
+    private synchronized Sprite adopt(Sprite sprite) {
+        if (released) return this;
+        synchronized (sprite) {
+            if (sprite.sources == null) return this;
+            sources = sprite.sources.clone();
+            for (String src : sources) Assets.retain(src);
+        }
+        loadedRegions = sprite.loadedRegions;
+        return this;
     }
 
     /**
-     * Get the Sprite Image
+     * Swap the Regions published by a loading thread in for the placeholders, if they were not swapped in already,
+     * and drop streamed frames if the Sprite was released
+     * <br>
+     * This is called by the thread updating the Sprite before it reads or changes its frames, so the frames are only
+     * ever modified by that thread
+     */
+    private void syncFrames() {
+        if (clearStream) {
+            clearStream = false;
+            stream.clear(regions);
+        }
+        if (swapped || loaded == null) return;
+        Region[] frames = loadedRegions;
+        if (frames == null) return;
+        swapped = true;
+        if (regions != null) {
+            regions = new ArrayList<>(Arrays.asList(frames));
+            region = regions.get(Math.max(0, Math.min(regions.size() - 1, getFrame())));
+        } else {
+            region = frames[0];
+        }
+        if (occluding) setOccluding(true);
+    }
+
+    /**
+     * Check if the images of the Sprite are loaded
+     *
+     * @return True if the Sprite was not loaded in the background, or finished loading
+     */
+    public boolean isLoaded() {
+        return loaded == null || loaded.isDone();
+    }
+
+    /**
+     * Get a future completed once the images of the Sprite are loaded, for waiting on groups of Sprites to preload
+     *
+     * @return Future completed with this Sprite, or completed exceptionally if an image could not be loaded
+     */
+    public CompletableFuture<Sprite> whenLoaded() {
+        return loaded != null ? loaded : CompletableFuture.completedFuture(this);
+    }
+
+    /**
+     * Load images from files as Regions covering each entire image
+     *
+     * @param src Paths to images
+     * @return Regions of the loaded images
+     * @throws FileNotFoundException If an image does not exist
+     */
+    private static Region[] load(String... src) throws FileNotFoundException {
+        Region[] regions = new Region[src.length];
+        for (int i = 0; i < src.length; i++) {
+            try {
+                regions[i] = new Region(Assets.acquire(src[i]));
+            } catch (FileNotFoundException e) {
+                for (int j = 0; j < i; j++) Assets.release(src[j]);
+                throw e;
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Release the images the Sprite acquired from Assets, letting them be evicted once no other Sprite uses them
+     * <br>
+     * The Sprite can still be drawn afterwards, but its images may be decoded again by later Sprites. Streamed frames
+     * are dropped by the thread updating the Sprite the next time it updates or reads its frames, so this can be
+     * called from any thread.
+     *
+     * @return This Sprite
+     */
+    public synchronized Sprite release() {
+        released = true;
+        if (stream != null) clearStream = true;
+        if (sources != null) {
+            for (String src : sources) Assets.release(src);
+            sources = null;
+        }
+        return this;
+    }
+
+    /**
+     * Get the Image the current Sprite frame is located in
      *
      * @return Sprite Image
      */
     public Image getImage() {
-        return image;
+        syncFrames();
+        return region.getImage();
+    }
+
+    /**
+     * Get the Region of the Image used for the current Sprite frame
+     *
+     * @return Sprite Region
+     */
+    public Region getRegion() {
+        syncFrames();
+        return region;
+    }
+
+    /**
+     * Get the Region of the Image for the Sprite frame shown a time after the animation started, for Entities that
+     * keep their own animation time, such as with their own speed and phase or through an Animator
+     * <br>
+     * This does not change the Sprite, so the Sprite can be shared by Entities that each play it at their own speed
+     * and start it at different times. A non-looping animation holds its last frame once the time passes its end.
+     *
+     * @param time Time since the animation started in seconds
+     * @return Sprite Region at the time
+     */
+    public Region getRegionAt(double time) {
+        syncFrames();
+        if (regions == null || regions.isEmpty()) return region;
+        return regionAt(time / frameStep);
+    }
+
+    /**
+     * Get the Region of a frame that has not been wrapped, wrapping it if looping or holding the first or last frame
+     * otherwise
+     *
+     * @param frame Frame advanced to since the animation started
+     * @return Region of the frame, or the current Region if the frame is streamed and not decoded yet
+     */
+    private Region regionAt(double frame) {
+        long index = Float.compare(frameStep, 0) > 0 ? (long) Math.floor(frame) : (long) Math.ceil(frame);
+        int size = regions.size();
+        Region shown = regions.get((int) (loop ? Math.floorMod(index, size) : Math.max(0, Math.min(size - 1, index))));
+        return stream == null || stream.isDecoded(shown) ? shown : region;
     }
 
     /**
@@ -305,27 +670,58 @@ public class Sprite {
         return paused;
     }
 
+    /**
+     * Check if the opaque part of the Sprite hides Sprites behind it
+     *
+     * @return True if occluding
+     */
+    public boolean isOccluding() {
+        return occluding;
+    }
+
+    /**
+     * Set whether the opaque part of the Sprite hides Sprites behind it, so they can be skipped when rendering
+     * <br>
+     * The largest fully opaque rectangle of every frame is found from its pixels once, so this should only be enabled
+     * for Sprites that are mostly opaque, such as walls
+     *
+     * @param occluding True to hide Sprites behind this Sprite
+     * @return This Sprite
+     */
+    public Sprite setOccluding(boolean occluding) {
+        this.occluding = occluding;
+        if (occluding) {
+            if (regions != null) for (Region frame : regions) frame.getOpaqueBounds();
+            else region.getOpaqueBounds();
+        }
+        return this;
+    }
+
     /**
      * Set the current frame to the next available frame based on elapsed time
      * <br>
-     * This is usually called by the renderer
+     * This is usually called once per frame by the AnimationClock of the renderer
      *
      * @param deltaTime Time elapsed for the render frame
      */
     public void update(float deltaTime) {
-        if (!paused && images != null && !images.isEmpty() && Float.compare(frameStep, 0) != 0) {
+        syncFrames();
+        if (!paused && regions != null && !regions.isEmpty() && Float.compare(frameStep, 0) != 0) {
+            Region previous = region;
             try {
                 currentFrame = currentFrame + (deltaTime / frameStep);
-                image = images.get(getFrame());
+                region = regions.get(getFrame());
             } catch (IndexOutOfBoundsException e) {
                 if (loop) {
-                    currentFrame = Float.compare(frameStep, 0) > 0 ? (currentFrame - images.size()) : (currentFrame + images.size());
-                    image = images.get(getFrame());
+                    currentFrame = currentFrame % regions.size();
+                    if (getFrame() < 0) currentFrame += regions.size();
+                    region = regions.get(getFrame());
                 } else {
-                    currentFrame = Float.compare(frameStep, 0) > 0 ? 0 : images.size();
+                    currentFrame = Float.compare(frameStep, 0) > 0 ? 0 : regions.size();
                     paused = true;
                 }
             }
+            if (stream != null) streamFrames(previous);
         }
     }
 
@@ -367,6 +763,15 @@ public class Sprite {
         return Float.compare(frameStep, 0) > 0 ? (int) Math.floor(currentFrame) : (int) Math.ceil(currentFrame);
     }
 
+    /**
+     * Get the number of frames in the animation
+     *
+     * @return Number of frames, or 1 if the Sprite is not animated
+     */
+    public int getFrameCount() {
+        return regions != null ? regions.size() : 1;
+    }
+
     /**
      * Set the current frame in the animation
      *
@@ -374,8 +779,11 @@ public class Sprite {
      * @return This Sprite
      */
     public Sprite setFrame(int frame) {
+        syncFrames();
+        Region previous = region;
         currentFrame = frame;
-        image = images.get(frame);
+        region = regions.get(frame);
+        if (stream != null) streamFrames(previous);
         return this;
     }
 
@@ -395,9 +803,10 @@ public class Sprite {
                 Float.compare(sprite.rotation, rotation) == 0 &&
                 Double.compare(sprite.currentFrame, currentFrame) == 0 &&
                 Double.compare(sprite.frameStep, frameStep) == 0 &&
-                Objects.equals(image, sprite.image) &&
-                Objects.equals(images, sprite.images) &&
+                Objects.equals(region, sprite.region) &&
+                Objects.equals(regions, sprite.regions) &&
                 Objects.equals(loop, sprite.loop) &&
-                Objects.equals(paused, sprite.paused);
+                Objects.equals(paused, sprite.paused) &&
+                occluding == sprite.occluding;
     }
 }
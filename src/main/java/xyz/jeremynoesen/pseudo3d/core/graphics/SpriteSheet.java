@@ -0,0 +1,170 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import javafx.scene.image.Image;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single image holding many Sprite frames, sliced into Regions by a grid or a frame table
+ * <br>
+ * Every Region shares the one decoded image, so an animation needs one file and one texture instead of one per frame.
+ * The Regions can be passed straight to the animated Sprite constructor.
+ *
+ * @author Jeremy Noesen
+ */
+public class SpriteSheet {
+
+    /**
+     * Pattern matching a frame rectangle in a JSON frame table, such as those exported by Aseprite or TexturePacker
+     */
+    private static final Pattern FRAME = Pattern.compile("\"frame\"\\s*:\\s*\\{([^}]*)}");
+
+    /**
+     * Pattern matching a named integer value inside a frame rectangle
+     */
+    private static final Pattern VALUE = Pattern.compile("\"([xywh])\"\\s*:\\s*(-?\\d+)");
+
+    /**
+     * Image holding every frame
+     */
+    private final Image image;
+
+    /**
+     * Path the image was acquired from in Assets, or null if it was not loaded from a file
+     */
+    private String src;
+
+    /**
+     * Create a new SpriteSheet from a file, sharing the decoded image through Assets
+     *
+     * @param src Path to the sheet image
+     * @throws FileNotFoundException If the image does not exist
+     */
+    public SpriteSheet(String src) throws FileNotFoundException {
+        image = Assets.acquire(src);
+        this.src = src;
+    }
+
+    /**
+     * Create a new SpriteSheet from an Image
+     *
+     * @param image Image holding every frame
+     */
+    public SpriteSheet(Image image) {
+        this.image = image;
+        src = null;
+    }
+
+    /**
+     * Slice the whole image into equal frames, from left to right then top to bottom
+     *
+     * @param frameWidth  Width of each frame in pixels
+     * @param frameHeight Height of each frame in pixels
+     * @return Regions of every frame
+     */
+    public Region[] grid(int frameWidth, int frameHeight) {
+        return grid(frameWidth, frameHeight, 0, 0);
+    }
+
+    /**
+     * Slice the whole image into equal frames separated by spacing, from left to right then top to bottom
+     *
+     * @param frameWidth  Width of each frame in pixels
+     * @param frameHeight Height of each frame in pixels
+     * @param margin      Pixels around the edge of the image before the first frame
+     * @param spacing     Pixels between neighboring frames
+     * @return Regions of every frame
+     */
+    public Region[] grid(int frameWidth, int frameHeight, int margin, int spacing) {
+        int columns = (int) ((image.getWidth() - margin * 2 + spacing) / (frameWidth + spacing));
+        int rows = (int) ((image.getHeight() - margin * 2 + spacing) / (frameHeight + spacing));
+        return grid(frameWidth, frameHeight, margin, spacing, 0, Math.max(0, columns * rows));
+    }
+
+    /**
+     * Slice a run of equal frames separated by spacing, from left to right then top to bottom
+     *
+     * @param frameWidth  Width of each frame in pixels
+     * @param frameHeight Height of each frame in pixels
+     * @param margin      Pixels around the edge of the image before the first frame
+     * @param spacing     Pixels between neighboring frames
+     * @param first       Index of the first frame to slice
+     * @param count       Number of frames to slice
+     * @return Regions of the frames
+     */
+    public Region[] grid(int frameWidth, int frameHeight, int margin, int spacing, int first, int count) {
+        int columns = Math.max(1, (int) ((image.getWidth() - margin * 2 + spacing) / (frameWidth + spacing)));
+        Region[] frames = new Region[count];
+        for (int i = 0; i < count; i++) {
+            int column = (first + i) % columns;
+            int row = (first + i) / columns;
+            frames[i] = new Region(image, margin + column * (frameWidth + spacing),
+                    margin + row * (frameHeight + spacing), frameWidth, frameHeight);
+        }
+        return frames;
+    }
+
+    /**
+     * Slice frames from a table of rectangles
+     *
+     * @param rects Frames stored as x, y, width, and height in pixels
+     * @return Regions of the frames, in table order
+     */
+    public Region[] frames(int... rects) {
+        Region[] frames = new Region[rects.length / 4];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new Region(image, rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3]);
+        }
+        return frames;
+    }
+
+    /**
+     * Slice frames from a JSON frame table, reading every "frame" object with x, y, w, and h values
+     * <br>
+     * This reads the frame tables exported by common sprite tools without needing a JSON library
+     *
+     * @param json JSON frame table
+     * @return Regions of the frames, in the order they appear in the table
+     * @throws IllegalArgumentException If a frame is missing a value
+     */
+    public Region[] frames(String json) {
+        ArrayList<Region> frames = new ArrayList<>();
+        Matcher frame = FRAME.matcher(json);
+        while (frame.find()) {
+            int[] rect = {-1, -1, -1, -1};
+            Matcher value = VALUE.matcher(frame.group(1));
+            while (value.find()) rect["xywh".indexOf(value.group(1))] = Integer.parseInt(value.group(2));
+            if (rect[0] < 0 || rect[1] < 0 || rect[2] < 0 || rect[3] < 0)
+                throw new IllegalArgumentException("Frame is missing x, y, w, or h: " + frame.group());
+            frames.add(new Region(image, rect[0], rect[1], rect[2], rect[3]));
+        }
+        return frames.toArray(new Region[0]);
+    }
+
+    /**
+     * Get the Image holding every frame
+     *
+     * @return Sheet Image
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Release the image the SpriteSheet acquired from Assets, letting it be evicted once nothing else uses it
+     * <br>
+     * Regions already sliced can still be drawn afterwards
+     *
+     * @return This SpriteSheet
+     */
+    public SpriteSheet release() {
+        if (src != null) {
+            Assets.release(src);
+            src = null;
+        }
+        return this;
+    }
+}
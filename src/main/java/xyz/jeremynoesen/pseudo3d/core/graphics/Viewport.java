@@ -0,0 +1,182 @@
+package xyz.jeremynoesen.pseudo3d.core.graphics;
+
+import java.util.Objects;
+
+/**
+ * Rectangle of the render showing a Scene through its own Camera, for split-screen, minimaps, and picture-in-picture
+ * <br>
+ * The rectangle is given in fractions of the RenderTarget size, so it follows the RenderTarget when resized
+ *
+ * @author Jeremy Noesen
+ */
+public class Viewport {
+
+    /**
+     * Camera the Viewport shows the Scene through
+     */
+    private Camera camera;
+
+    /**
+     * X position of the left edge as a fraction of the RenderTarget width
+     */
+    private float x;
+
+    /**
+     * Y position of the top edge as a fraction of the RenderTarget height
+     */
+    private float y;
+
+    /**
+     * Width as a fraction of the RenderTarget width
+     */
+    private float width;
+
+    /**
+     * Height as a fraction of the RenderTarget height
+     */
+    private float height;
+
+    /**
+     * Whether the Scene background is drawn in the Viewport
+     */
+    private boolean background;
+
+    /**
+     * Create a new Viewport covering the whole RenderTarget
+     *
+     * @param camera Camera to show the Scene through
+     */
+    public Viewport(Camera camera) {
+        this(camera, 0, 0, 1, 1);
+    }
+
+    /**
+     * Create a new Viewport covering part of the RenderTarget
+     *
+     * @param camera Camera to show the Scene through
+     * @param x      X position of the left edge as a fraction of the RenderTarget width
+     * @param y      Y position of the top edge as a fraction of the RenderTarget height
+     * @param width  Width as a fraction of the RenderTarget width
+     * @param height Height as a fraction of the RenderTarget height
+     */
+    public Viewport(Camera camera, float x, float y, float width, float height) {
+        this.camera = camera;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        background = true;
+    }
+
+    /**
+     * Get the Camera the Viewport shows the Scene through
+     *
+     * @return Viewport Camera
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Set the Camera the Viewport shows the Scene through
+     *
+     * @param camera Viewport Camera
+     * @return This Viewport
+     */
+    public Viewport setCamera(Camera camera) {
+        this.camera = camera;
+        return this;
+    }
+
+    /**
+     * Get the x position of the left edge
+     *
+     * @return X position as a fraction of the RenderTarget width
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Get the y position of the top edge
+     *
+     * @return Y position as a fraction of the RenderTarget height
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Get the width of the Viewport
+     *
+     * @return Width as a fraction of the RenderTarget width
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the Viewport
+     *
+     * @return Height as a fraction of the RenderTarget height
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Set the rectangle of the RenderTarget the Viewport covers
+     *
+     * @param x      X position of the left edge as a fraction of the RenderTarget width
+     * @param y      Y position of the top edge as a fraction of the RenderTarget height
+     * @param width  Width as a fraction of the RenderTarget width
+     * @param height Height as a fraction of the RenderTarget height
+     * @return This Viewport
+     */
+    public Viewport setBounds(float x, float y, float width, float height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Check if the Scene background is drawn in the Viewport
+     *
+     * @return True if the background is drawn
+     */
+    public boolean hasBackground() {
+        return background;
+    }
+
+    /**
+     * Set whether the Scene background is drawn in the Viewport
+     *
+     * @param background True to draw the background
+     * @return This Viewport
+     */
+    public Viewport setBackground(boolean background) {
+        this.background = background;
+        return this;
+    }
+
+    /**
+     * Check if two Viewports are identical
+     *
+     * @param o Viewport to check
+     * @return True if equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Viewport viewport = (Viewport) o;
+        return Float.compare(viewport.x, x) == 0 &&
+                Float.compare(viewport.y, y) == 0 &&
+                Float.compare(viewport.width, width) == 0 &&
+                Float.compare(viewport.height, height) == 0 &&
+                background == viewport.background &&
+                Objects.equals(camera, viewport.camera);
+    }
+}
@@ -0,0 +1,476 @@
+package xyz.jeremynoesen.pseudo3d.core.object;
+
+import xyz.jeremynoesen.pseudo3d.core.graphics.Region;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Sprite;
+import xyz.jeremynoesen.pseudo3d.core.util.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * State machine choosing which Sprite clip an Entity shows, switching clips through transitions on parameters such
+ * as velocity and direction
+ * <br>
+ * Clips, parameters, and transitions are resolved to indices when they are added, and the transitions leaving each
+ * clip are gathered into a table once, so evaluating the Animator every tick only compares floats and does not
+ * allocate.
+ * <br>
+ * The frame of the current clip is worked out from the time the clip has been shown, so entering a clip restarts it
+ * from its first frame without changing its Sprite. Clip Sprites can then be shared between Animators, but each
+ * Animator keeps the state of a single Entity and should not be shared.
+ *
+ * @author Jeremy Noesen
+ */
+public class Animator {
+
+    /**
+     * Built-in parameter for the X velocity of the Entity
+     */
+    public static final String VELOCITY_X = "velocityX";
+
+    /**
+     * Built-in parameter for the Y velocity of the Entity
+     */
+    public static final String VELOCITY_Y = "velocityY";
+
+    /**
+     * Built-in parameter for the Z velocity of the Entity
+     */
+    public static final String VELOCITY_Z = "velocityZ";
+
+    /**
+     * Built-in parameter for the speed of the Entity on the X and Z axes
+     */
+    public static final String SPEED = "speed";
+
+    /**
+     * Built-in parameter for the direction the Entity last moved on the X and Z axes, in degrees from -180 to 180,
+     * where 0 is towards positive X and 90 is towards positive Z
+     */
+    public static final String DIRECTION = "direction";
+
+    /**
+     * Built-in parameter for the time the current clip has been shown in seconds
+     */
+    public static final String TIME = "time";
+
+    /**
+     * Speed below which the Entity is considered stationary, keeping its last direction
+     */
+    private static final float STATIONARY = 0.001f;
+
+    /**
+     * Names of every clip, in the order they were added
+     */
+    private final ArrayList<String> clipNames;
+
+    /**
+     * Index of every clip by name
+     */
+    private final HashMap<String, Integer> clipIndices;
+
+    /**
+     * Index of every parameter by name
+     */
+    private final HashMap<String, Integer> parameterIndices;
+
+    /**
+     * Transitions in the order they were added
+     */
+    private final ArrayList<Transition> transitions;
+
+    /**
+     * Sprite of every clip
+     */
+    private Sprite[] clips;
+
+    /**
+     * Value of every parameter
+     */
+    private float[] parameters;
+
+    /**
+     * Transitions leaving each clip, followed by transitions from any clip, built once after a change
+     */
+    private Transition[][] table;
+
+    /**
+     * Index of the clip being shown, or -1 if no clips were added
+     */
+    private int current;
+
+    /**
+     * Create a new Animator with no clips
+     */
+    public Animator() {
+        clipNames = new ArrayList<>();
+        clipIndices = new HashMap<>();
+        parameterIndices = new HashMap<>();
+        transitions = new ArrayList<>();
+        clips = new Sprite[0];
+        parameters = new float[0];
+        table = null;
+        current = -1;
+        for (String parameter : new String[]{VELOCITY_X, VELOCITY_Y, VELOCITY_Z, SPEED, DIRECTION, TIME})
+            setParameter(parameter, 0);
+    }
+
+    /**
+     * Copy constructor for Animators, sharing the clip Sprites, since the copy keeps its own clip time
+     *
+     * @param animator Animator to copy
+     */
+    public Animator(Animator animator) {
+        clipNames = new ArrayList<>(animator.clipNames);
+        clipIndices = new HashMap<>(animator.clipIndices);
+        parameterIndices = new HashMap<>(animator.parameterIndices);
+        transitions = new ArrayList<>(animator.transitions);
+        clips = animator.clips.clone();
+        parameters = animator.parameters.clone();
+        table = animator.table;
+        current = animator.current;
+    }
+
+    /**
+     * Add a named clip, or replace the Sprite of an existing clip
+     * <br>
+     * The first clip added is shown until a transition leaves it
+     *
+     * @param name   Name of the clip
+     * @param sprite Sprite shown for the clip
+     * @return This Animator
+     */
+    public Animator addClip(String name, Sprite sprite) {
+        Integer index = clipIndices.get(name);
+        if (index == null) {
+            index = clips.length;
+            clipIndices.put(name, index);
+            clipNames.add(name);
+            clips = Arrays.copyOf(clips, index + 1);
+            table = null;
+        }
+        clips[index] = sprite;
+        if (current < 0) current = index;
+        return this;
+    }
+
+    /**
+     * Add a transition between two clips, taken once a parameter compares to a value
+     * <br>
+     * Transitions are checked in the order they were added, with transitions from any clip checked after those
+     * leaving the current clip, and the first one whose condition holds is taken. Several transitions between the
+     * same clips are taken if any of their conditions hold. A transition from any clip to the current clip keeps it
+     * shown without restarting it, and stops later transitions from being checked.
+     *
+     * @param from       Name of the clip to leave, or null to leave any clip
+     * @param to         Name of the clip to enter
+     * @param parameter  Name of the parameter to compare
+     * @param comparison How the parameter is compared to the value
+     * @param value      Value to compare the parameter to
+     * @return This Animator
+     * @throws IllegalArgumentException If a clip or the parameter does not exist
+     */
+    public Animator addTransition(String from, String to, String parameter, Comparison comparison, float value) {
+        transitions.add(new Transition(from != null ? clipIndex(from) : -1, clipIndex(to),
+                getParameterIndex(parameter), comparison, value));
+        table = null;
+        return this;
+    }
+
+    /**
+     * Get the index of a clip
+     *
+     * @param name Name of the clip
+     * @return Index of the clip
+     * @throws IllegalArgumentException If the clip does not exist
+     */
+    private int clipIndex(String name) {
+        Integer index = clipIndices.get(name);
+        if (index == null) throw new IllegalArgumentException("No clip named " + name);
+        return index;
+    }
+
+    /**
+     * Get the index of a parameter, for setting it every tick without looking up its name
+     *
+     * @param name Name of the parameter
+     * @return Index of the parameter
+     * @throws IllegalArgumentException If the parameter does not exist
+     */
+    public int getParameterIndex(String name) {
+        Integer index = parameterIndices.get(name);
+        if (index == null) throw new IllegalArgumentException("No parameter named " + name);
+        return index;
+    }
+
+    /**
+     * Get the value of a parameter
+     *
+     * @param name Name of the parameter
+     * @return Value of the parameter
+     * @throws IllegalArgumentException If the parameter does not exist
+     */
+    public float getParameter(String name) {
+        return parameters[getParameterIndex(name)];
+    }
+
+    /**
+     * Set the value of a parameter, adding the parameter if it does not exist
+     * <br>
+     * Built-in parameters are overwritten from the Entity every tick
+     *
+     * @param name  Name of the parameter
+     * @param value New value
+     * @return This Animator
+     */
+    public Animator setParameter(String name, float value) {
+        Integer index = parameterIndices.get(name);
+        if (index == null) {
+            index = parameters.length;
+            parameterIndices.put(name, index);
+            parameters = Arrays.copyOf(parameters, index + 1);
+        }
+        parameters[index] = value;
+        return this;
+    }
+
+    /**
+     * Set the value of a parameter by its index
+     *
+     * @param index Index of the parameter
+     * @param value New value
+     * @return This Animator
+     */
+    public Animator setParameter(int index, float value) {
+        parameters[index] = value;
+        return this;
+    }
+
+    /**
+     * Gather the transitions leaving each clip into a table, followed by the transitions from any clip
+     */
+    private void buildTable() {
+        table = new Transition[clips.length][];
+        for (int clip = 0; clip < clips.length; clip++) {
+            ArrayList<Transition> leaving = new ArrayList<>();
+            for (Transition transition : transitions) if (transition.from == clip) leaving.add(transition);
+            for (Transition transition : transitions) if (transition.from < 0) leaving.add(transition);
+            table[clip] = leaving.toArray(new Transition[0]);
+        }
+    }
+
+    /**
+     * Update the built-in parameters from an Entity, take the first transition whose condition holds, and show the
+     * current clip on the Entity
+     * <br>
+     * This is called once per tick by the Scene
+     *
+     * @param entity    Entity the Animator is on
+     * @param deltaTime Time elapsed of the previous tick
+     */
+    public void tick(Entity entity, float deltaTime) {
+        if (current < 0) return;
+        if (table == null) buildTable();
+
+        Vector velocity = entity.getVelocity();
+        float speed = (float) Math.sqrt(velocity.getX() * velocity.getX() + velocity.getZ() * velocity.getZ());
+        parameters[0] = velocity.getX();
+        parameters[1] = velocity.getY();
+        parameters[2] = velocity.getZ();
+        parameters[3] = speed;
+        if (speed > STATIONARY)
+            parameters[4] = (float) Math.toDegrees(Math.atan2(velocity.getZ(), velocity.getX()));
+        parameters[5] += deltaTime;
+
+        for (Transition transition : table[current]) {
+            if (transition.test(parameters[transition.parameter])) {
+                if (transition.to != current) enter(transition.to);
+                break;
+            }
+        }
+        if (entity.getSprite() != clips[current]) entity.setSprite(clips[current]);
+    }
+
+    /**
+     * Show a clip from its first frame by restarting the clip time
+     *
+     * @param clip Index of the clip
+     */
+    private void enter(int clip) {
+        current = clip;
+        parameters[5] = 0;
+    }
+
+    /**
+     * Show a clip from its first frame, regardless of transitions
+     *
+     * @param name Name of the clip
+     * @return This Animator
+     * @throws IllegalArgumentException If the clip does not exist
+     */
+    public Animator play(String name) {
+        enter(clipIndex(name));
+        return this;
+    }
+
+    /**
+     * Get the name of the clip being shown
+     *
+     * @return Name of the current clip, or null if no clips were added
+     */
+    public String getClip() {
+        return current >= 0 ? clipNames.get(current) : null;
+    }
+
+    /**
+     * Get the Sprite of a clip
+     *
+     * @param name Name of the clip
+     * @return Sprite of the clip
+     * @throws IllegalArgumentException If the clip does not exist
+     */
+    public Sprite getSprite(String name) {
+        return clips[clipIndex(name)];
+    }
+
+    /**
+     * Get the Region of the frame of the current clip for the time it has been shown
+     * <br>
+     * This must be called on the thread ticking the Animator
+     *
+     * @param phase Offset of the animation in seconds
+     * @return Region of the current clip frame, or null if no clips were added
+     */
+    public Region getRegion(float phase) {
+        return current >= 0 ? clips[current].getRegionAt(parameters[5] + phase) : null;
+    }
+
+    /**
+     * Get the Sprite of the clip being shown
+     *
+     * @return Sprite of the current clip, or null if no clips were added
+     */
+    public Sprite getSprite() {
+        return current >= 0 ? clips[current] : null;
+    }
+
+    /**
+     * Check if two Animators are in the same state
+     *
+     * @param o Animator to check
+     * @return True if both have the same clips, parameters, and current clip
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Animator animator = (Animator) o;
+        return current == animator.current &&
+                clipNames.equals(animator.clipNames) &&
+                parameterIndices.equals(animator.parameterIndices) &&
+                Arrays.equals(parameters, animator.parameters) &&
+                Arrays.equals(clips, animator.clips);
+    }
+
+    /**
+     * How a parameter is compared to the value of a transition
+     */
+    public enum Comparison {
+
+        /**
+         * Parameter is less than the value
+         */
+        LESS,
+
+        /**
+         * Parameter is less than or equal to the value
+         */
+        LESS_EQUAL,
+
+        /**
+         * Parameter is greater than the value
+         */
+        GREATER,
+
+        /**
+         * Parameter is greater than or equal to the value
+         */
+        GREATER_EQUAL,
+
+        /**
+         * Parameter is equal to the value
+         */
+        EQUAL,
+
+        /**
+         * Parameter is not equal to the value
+         */
+        NOT_EQUAL
+    }
+
+    /**
+     * Transition between two clips with its condition resolved to indices
+     */
+    private static class Transition {
+
+        /**
+         * Index of the clip to leave, or -1 for any clip
+         */
+        private final int from;
+
+        /**
+         * Index of the clip to enter
+         */
+        private final int to;
+
+        /**
+         * Index of the parameter to compare
+         */
+        private final int parameter;
+
+        /**
+         * How the parameter is compared to the value
+         */
+        private final Comparison comparison;
+
+        /**
+         * Value to compare the parameter to
+         */
+        private final float value;
+
+        /**
+         * Create a new Transition
+         *
+         * @param from       Index of the clip to leave, or -1 for any clip
+         * @param to         Index of the clip to enter
+         * @param parameter  Index of the parameter to compare
+         * @param comparison How the parameter is compared to the value
+         * @param value      Value to compare the parameter to
+         */
+        private Transition(int from, int to, int parameter, Comparison comparison, float value) {
+            this.from = from;
+            this.to = to;
+            this.parameter = parameter;
+            this.comparison = comparison;
+            this.value = value;
+        }
+
+        /**
+         * Check if the condition of the Transition holds
+         *
+         * @param parameter Value of the parameter
+         * @return True if the Transition should be taken
+         */
+        private boolean test(float parameter) {
+            return switch (comparison) {
+                case LESS -> parameter < value;
+                case LESS_EQUAL -> parameter <= value;
+                case GREATER -> parameter > value;
+                case GREATER_EQUAL -> parameter >= value;
+                case EQUAL -> Float.compare(parameter, value) == 0;
+                case NOT_EQUAL -> Float.compare(parameter, value) != 0;
+            };
+        }
+    }
+}
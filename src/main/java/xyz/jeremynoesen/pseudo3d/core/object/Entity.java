@@ -1,6 +1,8 @@
 package xyz.jeremynoesen.pseudo3d.core.object;
 
 import xyz.jeremynoesen.pseudo3d.core.Scene;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Layer;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Region;
 import xyz.jeremynoesen.pseudo3d.core.graphics.Sprite;
 
 import java.util.Objects;
@@ -22,6 +24,16 @@ public class Entity extends Physics {
      */
     private Sprite sprite;
 
+    /**
+     * Animator choosing the Sprite of the Entity, or null to keep the Sprite set on it
+     */
+    private Animator animator;
+
+    /**
+     * Render Layer the Entity is drawn on
+     */
+    private Layer layer;
+
     /**
      * Whether the Entity is on-screen or not
      */
@@ -37,6 +49,16 @@ public class Entity extends Physics {
      */
     private float speed;
 
+    /**
+     * Offset of the Sprite animation in seconds
+     */
+    private float animationPhase;
+
+    /**
+     * Time the Sprite of the Entity has been shown, advanced at the speed modifier of the Entity, in seconds
+     */
+    private double animationTime;
+
     /**
      * Whether the Entity is visible and updatable in the Scene or not
      */
@@ -59,9 +81,13 @@ public class Entity extends Physics {
         super();
         scene = null;
         sprite = null;
+        animator = null;
+        layer = Layer.DYNAMIC;
         onScreen = false;
         updateOffScreen = false;
         speed = 1;
+        animationPhase = 0;
+        animationTime = 0;
         enabled = true;
         visible = true;
         physics = true;
@@ -75,10 +101,17 @@ public class Entity extends Physics {
     public Entity(Entity entity) {
         super(entity);
         if (entity.sprite != null) sprite = new Sprite(entity.sprite);
+        if (entity.animator != null) {
+            animator = new Animator(entity.animator);
+            if (entity.sprite == entity.animator.getSprite()) sprite = animator.getSprite();
+        }
         this.scene = entity.scene;
+        this.layer = entity.layer;
         this.onScreen = entity.onScreen;
         this.updateOffScreen = entity.updateOffScreen;
         this.speed = entity.speed;
+        this.animationPhase = entity.animationPhase;
+        this.animationTime = entity.animationTime;
         this.enabled = entity.enabled;
         this.visible = entity.visible;
         this.physics = entity.physics;
@@ -94,16 +127,84 @@ public class Entity extends Physics {
     }
 
     /**
-     * Set the Sprite for the Entity
+     * Set the Sprite for the Entity, restarting the animation time of the Entity if the Sprite changes
      *
      * @param sprite New Sprite
      * @return This Entity
      */
     public Entity setSprite(Sprite sprite) {
+        if (sprite != this.sprite) animationTime = 0;
         this.sprite = sprite;
         return this;
     }
 
+    /**
+     * Get the Region of the Sprite frame the Entity shows
+     * <br>
+     * An Entity with a speed modifier of 1 and no animation phase shows the current frame of its Sprite. Otherwise,
+     * the frame is worked out from the animation time of the Entity, so Entities sharing a Sprite can animate at their
+     * own speeds and out of step without changing the Sprite. The current clip of an Animator is shown from the time
+     * the clip has been shown instead.
+     * <br>
+     * This must be called on the thread ticking the Entity
+     *
+     * @return Region of the Sprite frame, or null if the Entity has no Sprite
+     */
+    public Region getRegion() {
+        if (sprite == null) return null;
+        if (animator != null && animator.getSprite() == sprite) return animator.getRegion(animationPhase);
+        if (Float.compare(speed, 1) == 0 && Float.compare(animationPhase, 0) == 0) return sprite.getRegion();
+        return sprite.getRegionAt(animationTime + animationPhase);
+    }
+
+    /**
+     * Get the Animator choosing the Sprite of the Entity
+     *
+     * @return Animator, or null if there is none
+     */
+    public Animator getAnimator() {
+        return animator;
+    }
+
+    /**
+     * Set the Animator choosing the Sprite of the Entity, which shows its current clip on the Entity every tick
+     * <br>
+     * An Animator keeps the time its current clip has been shown, so it should not be shared between Entities, though
+     * its clip Sprites can be
+     *
+     * @param animator Animator, or null to keep the Sprite set on the Entity
+     * @return This Entity
+     */
+    public Entity setAnimator(Animator animator) {
+        this.animator = animator;
+        if (animator != null && animator.getSprite() != null) sprite = animator.getSprite();
+        return this;
+    }
+
+    /**
+     * Get the render Layer the Entity is drawn on
+     *
+     * @return Render Layer
+     */
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Set the render Layer the Entity is drawn on
+     * <br>
+     * Entities that rarely move should be placed on the static Layer, so it only needs to be redrawn when they or the
+     * Camera change. Layers are drawn in order, so an Entity on a lower Layer is always drawn behind Entities on
+     * higher Layers regardless of depth.
+     *
+     * @param layer Render Layer
+     * @return This Entity
+     */
+    public Entity setLayer(Layer layer) {
+        this.layer = layer;
+        return this;
+    }
+
     /**
      * Check if the Entity is shown on-screen
      * <br>
@@ -192,6 +293,29 @@ public class Entity extends Physics {
         return this;
     }
 
+    /**
+     * Get the offset of the Sprite animation of the Entity
+     *
+     * @return Animation phase in seconds
+     */
+    public float getAnimationPhase() {
+        return animationPhase;
+    }
+
+    /**
+     * Set the offset of the Sprite animation of the Entity
+     * <br>
+     * Entities sharing an animated Sprite can use different phases so they do not animate in step. The Sprite frame
+     * shown also advances at the speed modifier of the Entity, from the time the Sprite was set on the Entity.
+     *
+     * @param animationPhase Animation phase in seconds
+     * @return This Entity
+     */
+    public Entity setAnimationPhase(float animationPhase) {
+        this.animationPhase = animationPhase;
+        return this;
+    }
+
     /**
      * Update the motion of the Entity
      *
@@ -202,6 +326,17 @@ public class Entity extends Physics {
         super.tickMotion(deltaTime * speed);
     }
 
+    /**
+     * Advance the animation time of the Entity at its speed modifier, and update its Animator if it has one
+     *
+     * @param deltaTime Time elapsed of the previous tick
+     */
+    public void tickAnimation(float deltaTime) {
+        if (!enabled) return;
+        animationTime += deltaTime * speed;
+        if (animator != null) animator.tick(this, deltaTime * speed);
+    }
+
     /**
      * Check if the Entity is enabled in the Scene
      *
@@ -278,10 +413,13 @@ public class Entity extends Physics {
         return onScreen == entity.onScreen &&
                 updateOffScreen == entity.updateOffScreen &&
                 Float.compare(entity.speed, speed) == 0 &&
+                Float.compare(entity.animationPhase, animationPhase) == 0 &&
                 enabled == entity.enabled &&
                 visible == entity.visible &&
                 physics == entity.physics &&
                 Objects.equals(scene, entity.scene) &&
-                Objects.equals(sprite, entity.sprite);
+                Objects.equals(sprite, entity.sprite) &&
+                Objects.equals(animator, entity.animator) &&
+                layer == entity.layer;
     }
 }
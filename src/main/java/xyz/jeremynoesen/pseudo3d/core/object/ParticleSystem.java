@@ -0,0 +1,390 @@
+package xyz.jeremynoesen.pseudo3d.core.object;
+
+import xyz.jeremynoesen.pseudo3d.core.graphics.Layer;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Sprite;
+import xyz.jeremynoesen.pseudo3d.core.util.Vector;
+
+import java.util.Objects;
+
+/**
+ * Pool of short-lived particles sharing a Sprite, simulated with simple gravity and drag
+ * <br>
+ * Particles are stored in preallocated arrays, one per attribute, rather than as objects, so emitting and expiring
+ * particles does not allocate. Particles do not collide. They are sorted by z position when the Scene is captured,
+ * and are drawn between the Entities on their Layer in front of and behind them, in batches split at Entity depths.
+ *
+ * @author Jeremy Noesen
+ */
+public class ParticleSystem {
+
+    /**
+     * X position of each particle
+     */
+    private final float[] x;
+
+    /**
+     * Y position of each particle
+     */
+    private final float[] y;
+
+    /**
+     * Z position of each particle
+     */
+    private final float[] z;
+
+    /**
+     * X velocity of each particle
+     */
+    private final float[] velocityX;
+
+    /**
+     * Y velocity of each particle
+     */
+    private final float[] velocityY;
+
+    /**
+     * Z velocity of each particle
+     */
+    private final float[] velocityZ;
+
+    /**
+     * Time left before each particle expires in seconds
+     */
+    private final float[] lifetimes;
+
+    /**
+     * Number of live particles, which are stored at the start of the arrays
+     */
+    private int count;
+
+    /**
+     * Sprite every particle is drawn with
+     */
+    private Sprite sprite;
+
+    /**
+     * Render Layer the particles are drawn on
+     */
+    private Layer layer;
+
+    /**
+     * Acceleration applied to every particle
+     */
+    private Vector gravity;
+
+    /**
+     * Fraction of velocity every particle loses per second
+     */
+    private float drag;
+
+    /**
+     * Whether the particles are simulated and drawn
+     */
+    private boolean enabled;
+
+    /**
+     * Create a new ParticleSystem
+     *
+     * @param capacity Maximum number of live particles
+     * @param sprite   Sprite every particle is drawn with
+     */
+    public ParticleSystem(int capacity, Sprite sprite) {
+        x = new float[capacity];
+        y = new float[capacity];
+        z = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        velocityZ = new float[capacity];
+        lifetimes = new float[capacity];
+        count = 0;
+        this.sprite = sprite;
+        layer = Layer.DYNAMIC;
+        gravity = new Vector(0, -9.81f, 0);
+        drag = 0;
+        enabled = true;
+    }
+
+    /**
+     * Copy constructor for ParticleSystem
+     *
+     * @param particleSystem ParticleSystem to copy
+     */
+    public ParticleSystem(ParticleSystem particleSystem) {
+        x = particleSystem.x.clone();
+        y = particleSystem.y.clone();
+        z = particleSystem.z.clone();
+        velocityX = particleSystem.velocityX.clone();
+        velocityY = particleSystem.velocityY.clone();
+        velocityZ = particleSystem.velocityZ.clone();
+        lifetimes = particleSystem.lifetimes.clone();
+        count = particleSystem.count;
+        sprite = particleSystem.sprite;
+        layer = particleSystem.layer;
+        gravity = particleSystem.gravity;
+        drag = particleSystem.drag;
+        enabled = particleSystem.enabled;
+    }
+
+    /**
+     * Emit a particle, if the system is not full
+     *
+     * @param position Starting position
+     * @param velocity Starting velocity
+     * @param lifetime Time before the particle expires in seconds
+     * @return True if the particle was emitted
+     */
+    public boolean emit(Vector position, Vector velocity, float lifetime) {
+        return emit(position.getX(), position.getY(), position.getZ(),
+                velocity.getX(), velocity.getY(), velocity.getZ(), lifetime);
+    }
+
+    /**
+     * Emit a particle without creating Vectors, if the system is not full
+     *
+     * @param x         Starting x position
+     * @param y         Starting y position
+     * @param z         Starting z position
+     * @param velocityX Starting x velocity
+     * @param velocityY Starting y velocity
+     * @param velocityZ Starting z velocity
+     * @param lifetime  Time before the particle expires in seconds
+     * @return True if the particle was emitted
+     */
+    public boolean emit(float x, float y, float z, float velocityX, float velocityY, float velocityZ,
+                        float lifetime) {
+        if (count == lifetimes.length || Float.compare(lifetime, 0) <= 0) return false;
+        this.x[count] = x;
+        this.y[count] = y;
+        this.z[count] = z;
+        this.velocityX[count] = velocityX;
+        this.velocityY[count] = velocityY;
+        this.velocityZ[count] = velocityZ;
+        lifetimes[count] = lifetime;
+        count++;
+        return true;
+    }
+
+    /**
+     * Move every particle, then expire particles past their lifetime by moving the last particle into their place
+     *
+     * @param deltaTime Time since the previous tick in seconds
+     */
+    public void tick(float deltaTime) {
+        if (!enabled) return;
+        float gx = gravity.getX() * deltaTime;
+        float gy = gravity.getY() * deltaTime;
+        float gz = gravity.getZ() * deltaTime;
+        float damping = Math.max(0, 1 - drag * deltaTime);
+
+        for (int i = 0; i < count; i++) {
+            velocityX[i] = (velocityX[i] + gx) * damping;
+            velocityY[i] = (velocityY[i] + gy) * damping;
+            velocityZ[i] = (velocityZ[i] + gz) * damping;
+            x[i] += velocityX[i] * deltaTime;
+            y[i] += velocityY[i] * deltaTime;
+            z[i] += velocityZ[i] * deltaTime;
+            lifetimes[i] -= deltaTime;
+        }
+
+        int i = 0;
+        while (i < count) {
+            if (Float.compare(lifetimes[i], 0) > 0) {
+                i++;
+                continue;
+            }
+            int last = --count;
+            x[i] = x[last];
+            y[i] = y[last];
+            z[i] = z[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            velocityZ[i] = velocityZ[last];
+            lifetimes[i] = lifetimes[last];
+        }
+    }
+
+    /**
+     * Remove every particle
+     *
+     * @return This ParticleSystem
+     */
+    public ParticleSystem clear() {
+        count = 0;
+        return this;
+    }
+
+    /**
+     * Get the number of live particles
+     *
+     * @return Particle count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the maximum number of live particles
+     *
+     * @return Particle capacity
+     */
+    public int getCapacity() {
+        return lifetimes.length;
+    }
+
+    /**
+     * Get the x position of every particle
+     * <br>
+     * Only the first {@link #getCount()} values are live, and modifying this directly will cause problems
+     *
+     * @return X positions
+     */
+    public float[] getX() {
+        return x;
+    }
+
+    /**
+     * Get the y position of every particle
+     * <br>
+     * Only the first {@link #getCount()} values are live, and modifying this directly will cause problems
+     *
+     * @return Y positions
+     */
+    public float[] getY() {
+        return y;
+    }
+
+    /**
+     * Get the z position of every particle
+     * <br>
+     * Only the first {@link #getCount()} values are live, and modifying this directly will cause problems
+     *
+     * @return Z positions
+     */
+    public float[] getZ() {
+        return z;
+    }
+
+    /**
+     * Get the Sprite every particle is drawn with
+     *
+     * @return Particle Sprite
+     */
+    public Sprite getSprite() {
+        return sprite;
+    }
+
+    /**
+     * Set the Sprite every particle is drawn with
+     *
+     * @param sprite Particle Sprite
+     * @return This ParticleSystem
+     */
+    public ParticleSystem setSprite(Sprite sprite) {
+        this.sprite = sprite;
+        return this;
+    }
+
+    /**
+     * Get the render Layer the particles are drawn on
+     *
+     * @return Render Layer
+     */
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * Set the render Layer the particles are drawn on
+     *
+     * @param layer Render Layer
+     * @return This ParticleSystem
+     */
+    public ParticleSystem setLayer(Layer layer) {
+        this.layer = layer;
+        return this;
+    }
+
+    /**
+     * Get the acceleration applied to every particle
+     *
+     * @return Gravity in meters per second squared
+     */
+    public Vector getGravity() {
+        return gravity;
+    }
+
+    /**
+     * Set the acceleration applied to every particle
+     *
+     * @param gravity Gravity in meters per second squared
+     * @return This ParticleSystem
+     */
+    public ParticleSystem setGravity(Vector gravity) {
+        this.gravity = gravity;
+        return this;
+    }
+
+    /**
+     * Get the fraction of velocity every particle loses per second
+     *
+     * @return Drag coefficient
+     */
+    public float getDrag() {
+        return drag;
+    }
+
+    /**
+     * Set the fraction of velocity every particle loses per second
+     *
+     * @param drag Drag coefficient
+     * @return This ParticleSystem
+     */
+    public ParticleSystem setDrag(float drag) {
+        this.drag = Math.max(0, drag);
+        return this;
+    }
+
+    /**
+     * Check if the particles are simulated and drawn
+     *
+     * @return True if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Set whether the particles are simulated and drawn
+     *
+     * @param enabled True to enable
+     * @return This ParticleSystem
+     */
+    public ParticleSystem setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Check if a ParticleSystem is identical to this ParticleSystem
+     *
+     * @param o ParticleSystem to check
+     * @return True if equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ParticleSystem that = (ParticleSystem) o;
+        if (count != that.count || lifetimes.length != that.lifetimes.length ||
+                Float.compare(drag, that.drag) != 0 || enabled != that.enabled || layer != that.layer ||
+                !Objects.equals(sprite, that.sprite) || !Objects.equals(gravity, that.gravity)) return false;
+        for (int i = 0; i < count; i++) {
+            if (Float.compare(x[i], that.x[i]) != 0 || Float.compare(y[i], that.y[i]) != 0 ||
+                    Float.compare(z[i], that.z[i]) != 0 || Float.compare(velocityX[i], that.velocityX[i]) != 0 ||
+                    Float.compare(velocityY[i], that.velocityY[i]) != 0 ||
+                    Float.compare(velocityZ[i], that.velocityZ[i]) != 0 ||
+                    Float.compare(lifetimes[i], that.lifetimes[i]) != 0) return false;
+        }
+        return true;
+    }
+}
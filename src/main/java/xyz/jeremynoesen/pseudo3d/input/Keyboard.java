@@ -6,6 +6,7 @@ import javafx.scene.input.KeyCode;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Class to listen for key strokes, allowing multiple key presses
@@ -19,6 +20,16 @@ public class Keyboard {
      */
     private static final Set<KeyCode> pressed = new HashSet<>();
 
+    /**
+     * Events waiting to be applied on the next poll
+     */
+    private static final ConcurrentLinkedQueue<Runnable> events = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether events are queued until polled instead of applied immediately
+     */
+    private static volatile boolean queued = false;
+
     /**
      * Check if keys are pressed
      *
@@ -38,13 +49,61 @@ public class Keyboard {
         return pressed;
     }
 
+    /**
+     * Apply all queued events in the order they happened
+     * <br>
+     * This should be called on the thread that reads input, before reading it
+     */
+    public static void poll() {
+        Runnable event;
+        while ((event = events.poll()) != null) event.run();
+    }
+
+    /**
+     * Check if events are queued until polled instead of applied immediately
+     *
+     * @return True if queued
+     */
+    public static boolean isQueued() {
+        return queued;
+    }
+
+    /**
+     * Set whether events are queued until polled instead of applied immediately
+     * <br>
+     * Queueing lets input be read safely on a thread other than the JavaFX application thread, as long as it is only
+     * read on the same thread that polls it
+     *
+     * @param queued True to queue events
+     */
+    public static void setQueued(boolean queued) {
+        Keyboard.queued = queued;
+        if (!queued) poll();
+    }
+
+    /**
+     * Apply an event now, or queue it for the next poll if queueing
+     *
+     * @param event Event to apply
+     */
+    private static void handle(Runnable event) {
+        if (queued) events.add(event);
+        else event.run();
+    }
+
     /**
      * Add the event listeners to the main Canvas of the program
      *
      * @param canvas Main Canvas of the program
      */
     public static void init(Canvas canvas) {
-        canvas.setOnKeyPressed(e -> pressed.add(e.getCode()));
-        canvas.setOnKeyReleased(e -> pressed.remove(e.getCode()));
+        canvas.setOnKeyPressed(e -> {
+            KeyCode code = e.getCode();
+            handle(() -> pressed.add(code));
+        });
+        canvas.setOnKeyReleased(e -> {
+            KeyCode code = e.getCode();
+            handle(() -> pressed.remove(code));
+        });
     }
 }
@@ -7,6 +7,7 @@ import xyz.jeremynoesen.pseudo3d.core.util.Vector;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Class to keep track of mouse clicks and movement
@@ -32,6 +33,16 @@ public class Mouse {
      */
     private static float wheelRotation = 0;
 
+    /**
+     * Events waiting to be applied on the next poll
+     */
+    private static final ConcurrentLinkedQueue<Runnable> events = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether events are queued until polled instead of applied immediately
+     */
+    private static volatile boolean queued = false;
+
     /**
      * Check if MouseButtons are pressed
      *
@@ -69,15 +80,69 @@ public class Mouse {
         return position;
     }
 
+    /**
+     * Apply all queued events in the order they happened
+     * <br>
+     * This should be called on the thread that reads input, before reading it
+     */
+    public static void poll() {
+        Runnable event;
+        while ((event = events.poll()) != null) event.run();
+    }
+
+    /**
+     * Check if events are queued until polled instead of applied immediately
+     *
+     * @return True if queued
+     */
+    public static boolean isQueued() {
+        return queued;
+    }
+
+    /**
+     * Set whether events are queued until polled instead of applied immediately
+     * <br>
+     * Queueing lets input be read safely on a thread other than the JavaFX application thread, as long as it is only
+     * read on the same thread that polls it
+     *
+     * @param queued True to queue events
+     */
+    public static void setQueued(boolean queued) {
+        Mouse.queued = queued;
+        if (!queued) poll();
+    }
+
+    /**
+     * Apply an event now, or queue it for the next poll if queueing
+     *
+     * @param event Event to apply
+     */
+    private static void handle(Runnable event) {
+        if (queued) events.add(event);
+        else event.run();
+    }
+
     /**
      * Add the event listeners to the main Canvas of the program
      *
      * @param canvas Main Canvas of the program
      */
     public static void init(Canvas canvas) {
-        canvas.setOnMouseClicked(e -> pressed.add(e.getButton()));
-        canvas.setOnMouseReleased(e -> pressed.remove(e.getButton()));
-        canvas.setOnScroll(e -> wheelRotation = (float) e.getDeltaY());
-        canvas.setOnMouseMoved(e -> position = new Vector((float) e.getSceneX(), (float) e.getSceneY()));
+        canvas.setOnMouseClicked(e -> {
+            MouseButton button = e.getButton();
+            handle(() -> pressed.add(button));
+        });
+        canvas.setOnMouseReleased(e -> {
+            MouseButton button = e.getButton();
+            handle(() -> pressed.remove(button));
+        });
+        canvas.setOnScroll(e -> {
+            float rotation = (float) e.getDeltaY();
+            handle(() -> wheelRotation = rotation);
+        });
+        canvas.setOnMouseMoved(e -> {
+            Vector moved = new Vector((float) e.getSceneX(), (float) e.getSceneY());
+            handle(() -> position = moved);
+        });
     }
 }
@@ -2,8 +2,12 @@ import javafx.scene.input.KeyCode;
 import xyz.jeremynoesen.pseudo3d.Pseudo3D;
 import xyz.jeremynoesen.pseudo3d.input.Keyboard;
 import xyz.jeremynoesen.pseudo3d.core.Scene;
+import xyz.jeremynoesen.pseudo3d.core.object.Animator;
 import xyz.jeremynoesen.pseudo3d.core.object.Entity;
 import xyz.jeremynoesen.pseudo3d.core.graphics.Sprite;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Atlas;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Region;
+import xyz.jeremynoesen.pseudo3d.core.graphics.Layer;
 import xyz.jeremynoesen.pseudo3d.core.graphics.Camera;
 import xyz.jeremynoesen.pseudo3d.core.util.Axis;
 import xyz.jeremynoesen.pseudo3d.core.util.Side;
@@ -24,17 +28,31 @@ public class Example {
      * @param args Program arguments
      */
     public static void main(String[] args) throws FileNotFoundException {
-        Sprite playerFront = new Sprite(0.85f, 2, "src/test/resources/images/player/front.png");
-        Sprite playerBack = new Sprite(0.85f, 2, "src/test/resources/images/player/back.png");
-        Sprite playerLeft = new Sprite(0.6f, 2, "src/test/resources/images/player/left.png");
-        Sprite playerRight = new Sprite(0.6f, 2, "src/test/resources/images/player/right.png");
+        Region[] playerRegions = new Atlas().add(
+                "src/test/resources/images/player/front.png",
+                "src/test/resources/images/player/back.png",
+                "src/test/resources/images/player/left.png",
+                "src/test/resources/images/player/right.png");
+        //Pack player images into an Atlas
+
         Sprite floor = new Sprite(1, 1, "src/test/resources/images/floor.png");
         Sprite background = new Sprite(16, 16, "src/test/resources/images/background.png");
         //Load all Sprites
 
+        Animator playerAnimator = new Animator()
+                .addClip("front", new Sprite(0.85f, 2, playerRegions[0]))
+                .addClip("back", new Sprite(0.85f, 2, playerRegions[1]))
+                .addClip("left", new Sprite(0.6f, 2, playerRegions[2]))
+                .addClip("right", new Sprite(0.6f, 2, playerRegions[3]))
+                .addTransition(null, "right", Animator.VELOCITY_X, Animator.Comparison.GREATER, 0.5f)
+                .addTransition(null, "left", Animator.VELOCITY_X, Animator.Comparison.LESS, -0.5f)
+                .addTransition(null, "front", Animator.VELOCITY_Z, Animator.Comparison.GREATER, 0.5f)
+                .addTransition(null, "back", Animator.VELOCITY_Z, Animator.Comparison.LESS, -0.5f);
+        //Face the player the way it moves, keeping the last direction when it stops
+
         Entity player = (Entity) new Entity()
                 .setUpdateOffScreen(true)
-                .setSprite(playerFront)
+                .setAnimator(playerAnimator)
                 .setDimensions(new Vector(0.8f, 2, 0.8f));
         //Create player Entity
 
@@ -56,6 +74,7 @@ public class Example {
             for (int i = -3; i <= 0; i++) {
                 Entity block = (Entity) new Entity()
                         .setSprite(floor)
+                        .setLayer(Layer.STATIC)
                         .setKinematic()
                         .setPosition(new Vector(j, -4.75f, i))
                         .setDimensions(new Vector(1, 1, 1));
@@ -77,28 +96,24 @@ public class Example {
             if (Keyboard.isPressed(KeyCode.W)) {
                 if (Float.compare(player.getVelocity().getZ(), -2) > 0)
                     accel = accel.subtract(new Vector(0, 0, 20));
-                player.setSprite(playerBack);
             }
             //Accelerate forward
 
             if (Keyboard.isPressed(KeyCode.S)) {
                 if (Float.compare(player.getVelocity().getZ(), 2) < 0)
                     accel = accel.add(new Vector(0, 0, 20));
-                player.setSprite(playerFront);
             }
             //Accelerate backward
 
             if (Keyboard.isPressed(KeyCode.A)) {
                 if (Float.compare(player.getVelocity().getX(), -2) > 0)
                     accel = accel.subtract(new Vector(20, 0, 0));
-                player.setSprite(playerLeft);
             }
             //Accelerate left
 
             if (Keyboard.isPressed(KeyCode.D)) {
                 if (Float.compare(player.getVelocity().getX(), 2) < 0)
                     accel = accel.add(new Vector(20, 0, 0));
-                player.setSprite(playerRight);
             }
             //Accelerate right
 